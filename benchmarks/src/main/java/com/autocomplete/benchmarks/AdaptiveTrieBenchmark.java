@@ -0,0 +1,148 @@
+package com.autocomplete.benchmarks;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.AdaptivePatriciaTrie;
+import com.autocomplete.datatype.PatriciaTrie;
+import com.autocomplete.metrics.TrieMetrics;
+
+/**
+ * Prefix lookups, key lookups and suggestions in the binary {@link PatriciaTrie} against the char-wise
+ * {@link AdaptivePatriciaTrie}. The prefix lookups count the nodes they visit in the nodes and lookups counters, nodes
+ * per lookup is their ratio. Run with -prof perfnorm where perf is available for cache misses per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class AdaptiveTrieBenchmark {
+
+    private static final int QUERIES = 4096;
+
+    @Param({ Datasets.WORDS, Datasets.URLS })
+    public String dataset;
+
+    @Param({ "100000", "1000000" })
+    public int size;
+
+    @Param({ "3", "12" })
+    public int prefixLength;
+
+    private PatriciaTrie<String> trie;
+    private AdaptivePatriciaTrie adaptive;
+    private String[] prefixes;
+    private String[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] all = Datasets.generate(dataset, size);
+        trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        adaptive = new AdaptivePatriciaTrie();
+        for (String key : all) {
+            trie.put(key);
+            adaptive.put(key);
+        }
+
+        prefixes = Datasets.prefixes(all, prefixLength, QUERIES);
+        keys = Datasets.prefixes(all, Integer.MAX_VALUE, QUERIES);
+    }
+
+    /**
+     * Counts the nodes visited by prefix lookups.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Visits implements TrieMetrics {
+
+        public long nodes;
+        public long lookups;
+
+        @Override
+        public void lookup(int nodesVisited) {
+            nodes += nodesVisited;
+            lookups++;
+        }
+
+        @Override
+        public void insert(int pathLength) {
+        }
+
+        @Override
+        public void iteration(int restarts) {
+        }
+
+        @Override
+        public void bitTest() {
+        }
+
+        @Override
+        public void suggestions(long nanos) {
+        }
+    }
+
+    @Benchmark
+    public String lookup(Visits visits) {
+        trie.setMetrics(visits);
+        return first(trie.suggestionIterator(nextPrefix()));
+    }
+
+    @Benchmark
+    public String lookupAdaptive(Visits visits) {
+        adaptive.setMetrics(visits);
+        return first(adaptive.suggestionIterator(nextPrefix()));
+    }
+
+    @Benchmark
+    public Long getScore() {
+        return trie.getScore(nextKey());
+    }
+
+    @Benchmark
+    public Long getScoreAdaptive() {
+        return adaptive.getScore(nextKey());
+    }
+
+    @Benchmark
+    public List<String> suggestions() {
+        return trie.getSuggestions(nextPrefix(), 10);
+    }
+
+    @Benchmark
+    public List<String> suggestionsAdaptive() {
+        return adaptive.getSuggestions(nextPrefix(), 10);
+    }
+
+    private static String first(Iterator<String> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private String nextPrefix() {
+        next = (next + 1) & (QUERIES - 1);
+        return prefixes[next];
+    }
+
+    private String nextKey() {
+        next = (next + 1) & (QUERIES - 1);
+        return keys[next];
+    }
+}
@@ -0,0 +1,79 @@
+package com.autocomplete.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * Cost of the comparator primitives on neighbouring keys, which share a prefix like the keys compared during put.
+ * URL keys share long prefixes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitIndexBenchmark {
+
+    private static final int PAIRS = 4096;
+
+    @Param({ Datasets.WORDS, Datasets.URLS })
+    public String dataset;
+
+    private String[] keys;
+    private char[][] chars;
+    private int[] bits;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = Datasets.sorted(Datasets.generate(dataset, PAIRS + 1));
+        chars = new char[keys.length][];
+        for (int i = 0; i < keys.length; i++) {
+            chars[i] = keys[i].toCharArray();
+        }
+        bits = new int[PAIRS];
+        Random random = new Random(PAIRS);
+        for (int i = 0; i < PAIRS; i++) {
+            bits[i] = random.nextInt(StringKeyComparator.CHAR.lengthInBits(keys[i]));
+        }
+    }
+
+    @Benchmark
+    public int bitIndex() {
+        int i = nextPair();
+        return StringKeyComparator.CHAR.bitIndex(keys[i], keys[i + 1]);
+    }
+
+    @Benchmark
+    public int bitIndexChars() {
+        int i = nextPair();
+        return StringKeyComparator.bitIndex(chars[i], 0, chars[i].length, chars[i + 1], 0, chars[i + 1].length);
+    }
+
+    @Benchmark
+    public boolean isBitSet() {
+        int i = nextPair();
+        return StringKeyComparator.CHAR.isBitSet(keys[i], bits[i]);
+    }
+
+    private int nextPair() {
+        next = (next + 1) & (PAIRS - 1);
+        return next;
+    }
+}
@@ -0,0 +1,120 @@
+package com.autocomplete.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic, reproducible key sets for the benchmarks. The same dataset name, size and seed always produce the same
+ * keys, duplicates are possible.
+ */
+public final class Datasets {
+
+    public static final String WORDS = "words";
+    public static final String URLS = "urls";
+
+    /**
+     * Words behind a 1000 char prefix which all keys share.
+     */
+    public static final String SHARED_PREFIX = "shared";
+
+    /**
+     * Keys of 16 to 31 chars which are all 0xFFFE or 0xFFFF, so that keys only differ in the last bit of a char.
+     */
+    public static final String LAST_BIT = "lastbit";
+
+    private static final int SHARED_PREFIX_LENGTH = 1000;
+
+    private static final long SEED = 0x5EED;
+
+    private static final String[] SYLLABLES = { "a", "an", "ar", "ba", "be", "ca", "co", "de", "di", "el", "en", "er",
+            "fa", "ge", "ha", "in", "io", "ka", "la", "le", "li", "ma", "me", "mo", "na", "ne", "no", "or", "pa", "pe",
+            "ra", "re", "ri", "ro", "sa", "se", "si", "so", "ta", "te", "ti", "to", "tr", "un", "ur", "va", "ve", "za" };
+
+    private static final String[] SEGMENTS = { "api", "v1", "v2", "catalog", "items", "products", "search", "users",
+            "profile", "orders", "images", "static", "docs", "blog", "news", "2023", "2024", "archive", "en", "de" };
+
+    /**
+     * Returns size keys of the given dataset in generation order.
+     */
+    public static String[] generate(String dataset, int size) {
+        Random random = new Random(SEED);
+        String[] keys = new String[size];
+        if (WORDS.equals(dataset)) {
+            for (int i = 0; i < size; i++) {
+                keys[i] = word(random);
+            }
+        } else if (URLS.equals(dataset)) {
+            for (int i = 0; i < size; i++) {
+                keys[i] = url(random);
+            }
+        } else if (SHARED_PREFIX.equals(dataset)) {
+            StringBuilder prefix = new StringBuilder(SHARED_PREFIX_LENGTH);
+            while (prefix.length() < SHARED_PREFIX_LENGTH) {
+                prefix.append(word(random));
+            }
+            prefix.setLength(SHARED_PREFIX_LENGTH);
+            for (int i = 0; i < size; i++) {
+                keys[i] = prefix + word(random);
+            }
+        } else if (LAST_BIT.equals(dataset)) {
+            for (int i = 0; i < size; i++) {
+                keys[i] = lastBits(random);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown dataset " + dataset);
+        }
+        return keys;
+    }
+
+    public static String[] sorted(String[] keys) {
+        String[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Returns count prefixes of the given length, taken from random keys so that every lookup has a match.
+     */
+    public static String[] prefixes(String[] keys, int length, int count) {
+        Random random = new Random(SEED + length);
+        String[] prefixes = new String[count];
+        for (int i = 0; i < count; i++) {
+            String key = keys[random.nextInt(keys.length)];
+            prefixes[i] = key.substring(0, Math.min(length, key.length()));
+        }
+        return prefixes;
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(4);
+        for (int i = 0; i < syllables; i++) {
+            // Skew towards the first syllables so that short prefixes are shared by many words.
+            int index = (int) (SYLLABLES.length * Math.pow(random.nextDouble(), 2));
+            word.append(SYLLABLES[index]);
+        }
+        return word.toString();
+    }
+
+    private static String url(Random random) {
+        StringBuilder url = new StringBuilder("https://");
+        url.append("www.host").append(random.nextInt(1000)).append(".example.com");
+        int segments = 1 + random.nextInt(3);
+        for (int i = 0; i < segments; i++) {
+            url.append('/').append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+        }
+        url.append('/').append(Long.toString(random.nextLong() & Long.MAX_VALUE, Character.MAX_RADIX));
+        return url.toString();
+    }
+
+    private static String lastBits(Random random) {
+        char[] key = new char[16 + random.nextInt(16)];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = random.nextBoolean() ? '\uFFFF' : '\uFFFE';
+        }
+        return new String(key);
+    }
+
+    private Datasets() {
+    }
+}
@@ -0,0 +1,90 @@
+package com.autocomplete.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.PatriciaTrie;
+
+/**
+ * Latency of fuzzy suggestions for prefixes with one typo, next to the exact lookup of the same prefixes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class FuzzyBenchmark {
+
+    private static final int PREFIXES = 1024;
+
+    @Param({ Datasets.WORDS, Datasets.URLS })
+    public String dataset;
+
+    @Param({ "100000", "1000000" })
+    public int size;
+
+    @Param({ "3", "6" })
+    public int prefixLength;
+
+    @Param({ "1", "2" })
+    public int maxEdits;
+
+    @Param({ "10" })
+    public int k;
+
+    private PatriciaTrie<String> trie;
+    private String[] prefixes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] keys = Datasets.generate(dataset, size);
+        trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        for (String key : keys) {
+            trie.put(key);
+        }
+
+        // Replace one char of every prefix, so that the exact lookup mostly misses.
+        Random random = new Random(PREFIXES);
+        prefixes = Datasets.prefixes(keys, prefixLength, PREFIXES);
+        for (int i = 0; i < PREFIXES; i++) {
+            char[] chars = prefixes[i].toCharArray();
+            if (chars.length == 0) {
+                continue;
+            }
+            chars[random.nextInt(chars.length)] = (char) ('a' + random.nextInt(26));
+            prefixes[i] = new String(chars);
+        }
+    }
+
+    @Benchmark
+    public List<String> exact() {
+        return trie.getSuggestions(nextPrefix(), k);
+    }
+
+    @Benchmark
+    public List<String> fuzzy() {
+        return trie.getFuzzySuggestions(nextPrefix(), maxEdits, k);
+    }
+
+    private String nextPrefix() {
+        next = (next + 1) & (PREFIXES - 1);
+        return prefixes[next];
+    }
+}
@@ -0,0 +1,99 @@
+package com.autocomplete.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.InfixIndex;
+import com.autocomplete.datatype.PatriciaTrie;
+
+/**
+ * Build time of a trie with and without an {@link InfixIndex}, and infix completion against prefix completion. URLs
+ * have many words per key, maxWordsPerKey bounds how many of them are indexed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class InfixIndexBenchmark {
+
+    private static final int PREFIXES = 1024;
+
+    @Param({ Datasets.URLS })
+    public String dataset;
+
+    @Param({ "100000" })
+    public int size;
+
+    @Param({ "4", "2147483647" })
+    public int maxWordsPerKey;
+
+    @Param({ "10" })
+    public int limit;
+
+    private String[] keys;
+    private InfixIndex index;
+    private String[] words;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = Datasets.generate(dataset, size);
+        index = buildIndexed();
+
+        // Query the start of the second word, which prefix completion never finds.
+        String[] prefixes = Datasets.prefixes(keys, Integer.MAX_VALUE, PREFIXES);
+        words = new String[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            String[] parts = prefixes[i].split("[^\\p{L}\\p{N}]+");
+            String word = parts.length > 2 ? parts[2] : parts[parts.length - 1];
+            words[i] = word.substring(0, Math.min(3, word.length()));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, batchSize = 1)
+    public PatriciaTrie<String> buildPlain() {
+        PatriciaTrie<String> trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        for (String key : keys) {
+            trie.put(key);
+        }
+        return trie;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, batchSize = 1)
+    public InfixIndex buildIndexed() {
+        InfixIndex index = new InfixIndex(new PatriciaTrie<String>(StringKeyComparator.CHAR),
+                InfixIndex.NOT_LETTER_OR_DIGIT, 1, maxWordsPerKey);
+        for (String key : keys) {
+            index.put(key);
+        }
+        return index;
+    }
+
+    @Benchmark
+    public List<String> infixSuggestions() {
+        next = (next + 1) & (PREFIXES - 1);
+        return index.getSuggestions(words[next], limit);
+    }
+}
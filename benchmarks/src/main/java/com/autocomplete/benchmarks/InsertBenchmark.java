@@ -0,0 +1,75 @@
+package com.autocomplete.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.PatriciaTrie;
+
+/**
+ * Time to build a whole trie, with repeated put and with the bulk builder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class InsertBenchmark {
+
+    @Param({ Datasets.WORDS, Datasets.URLS })
+    public String dataset;
+
+    @Param({ "10000", "100000", "1000000", "10000000" })
+    public int size;
+
+    private String[] keys;
+    private String[] sortedKeys;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = Datasets.generate(dataset, size);
+        sortedKeys = Datasets.sorted(keys);
+    }
+
+    @Benchmark
+    public PatriciaTrie<String> put() {
+        PatriciaTrie<String> trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        for (String key : keys) {
+            trie.put(key);
+        }
+        return trie;
+    }
+
+    @Benchmark
+    public PatriciaTrie<String> putSorted() {
+        PatriciaTrie<String> trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        for (String key : sortedKeys) {
+            trie.put(key);
+        }
+        return trie;
+    }
+
+    @Benchmark
+    public PatriciaTrie<String> bulkLoad() {
+        return PatriciaTrie.bulkLoad(StringKeyComparator.CHAR, Arrays.asList(keys).iterator());
+    }
+
+    @Benchmark
+    public PatriciaTrie<String> bulkLoadSorted() {
+        return PatriciaTrie.bulkLoad(StringKeyComparator.CHAR, Arrays.asList(sortedKeys).iterator());
+    }
+}
@@ -0,0 +1,59 @@
+package com.autocomplete.benchmarks;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.PatriciaTrie;
+
+/**
+ * Cost of walking a whole trie of 100K generated keys in bit order, including tries whose keys share a long prefix or
+ * only differ in the last bit of their chars. Duplicate keys are only stored once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class IterationBenchmark {
+
+    private static final int SIZE = 100000;
+
+    @Param({ Datasets.WORDS, Datasets.URLS, Datasets.SHARED_PREFIX, Datasets.LAST_BIT })
+    public String dataset;
+
+    private PatriciaTrie<String> trie;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        for (String key : Datasets.generate(dataset, SIZE)) {
+            trie.put(key);
+        }
+    }
+
+    @Benchmark
+    public int iterate() {
+        int count = 0;
+        Iterator<String> iterator = trie.suggestionIterator("");
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,124 @@
+package com.autocomplete.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.CompletionSession;
+import com.autocomplete.datatype.ConcurrentPatriciaTrie;
+import com.autocomplete.datatype.PatriciaTrie;
+
+/**
+ * Latency of completing every prefix a user produces while typing a word: one call per prefix, one batch for all of
+ * them, or a session which is given one key at a time. Sessions run on a {@link ConcurrentPatriciaTrie} of the same
+ * keys, which is compared with one call per prefix as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class KeystrokeBenchmark {
+
+    private static final int WORDS = 1024;
+
+    @Param({ Datasets.WORDS, Datasets.URLS })
+    public String dataset;
+
+    @Param({ "100000", "1000000" })
+    public int size;
+
+    @Param({ "4", "8" })
+    public int keystrokes;
+
+    @Param({ "10" })
+    public int k;
+
+    private PatriciaTrie<String> trie;
+    private ConcurrentPatriciaTrie<String> concurrentTrie;
+    private List<List<String>> typed;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] keys = Datasets.generate(dataset, size);
+        trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        concurrentTrie = new ConcurrentPatriciaTrie<>(StringKeyComparator.CHAR);
+        ConcurrentPatriciaTrie<String>.Batch batch = concurrentTrie.batch();
+        for (String key : keys) {
+            trie.put(key);
+            batch.put(key);
+        }
+        batch.apply();
+
+        Random random = new Random(WORDS);
+        typed = new ArrayList<>(WORDS);
+        for (int i = 0; i < WORDS; i++) {
+            String key = keys[random.nextInt(keys.length)];
+            List<String> prefixes = new ArrayList<>(keystrokes);
+            for (int length = 1; length <= Math.min(keystrokes, key.length()); length++) {
+                prefixes.add(key.substring(0, length));
+            }
+            typed.add(prefixes);
+        }
+    }
+
+    @Benchmark
+    public int independent() {
+        int found = 0;
+        for (String prefix : nextWord()) {
+            found += trie.getSuggestions(prefix, k).size();
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int batch() {
+        int found = 0;
+        for (List<String> suggestions : trie.getSuggestionsBatch(nextWord(), k)) {
+            found += suggestions.size();
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int concurrentIndependent() {
+        int found = 0;
+        for (String prefix : nextWord()) {
+            found += concurrentTrie.getSuggestions(prefix, k).size();
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int session() {
+        int found = 0;
+        CompletionSession session = new CompletionSession(concurrentTrie);
+        for (String prefix : nextWord()) {
+            session.append(prefix.charAt(prefix.length() - 1));
+            found += session.getSuggestions(k).size();
+        }
+        return found;
+    }
+
+    private List<String> nextWord() {
+        next = (next + 1) & (WORDS - 1);
+        return typed.get(next);
+    }
+}
@@ -0,0 +1,117 @@
+package com.autocomplete.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.NormalizingKeyComparator;
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.NormalizedPatriciaTrie;
+import com.autocomplete.datatype.PatriciaTrie;
+
+/**
+ * Case and accent insensitive completion of words in three spellings each, capitalized, upper case and with an
+ * accent. The plain trie indexes every spelling under its folded form followed by the spelling itself, the way a
+ * caller would without a normalizing comparator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class NormalizedTrieBenchmark {
+
+    private static final int PREFIXES = 1024;
+
+    @Param({ "100000" })
+    public int size;
+
+    @Param({ "10" })
+    public int limit;
+
+    private String[] spellings;
+    private NormalizedPatriciaTrie normalized;
+    private PatriciaTrie<String> plain;
+    private String[] prefixes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] words = Datasets.generate(Datasets.WORDS, size);
+        spellings = new String[words.length * 3];
+        for (int i = 0; i < words.length; i++) {
+            String word = words[i];
+            spellings[3 * i] = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            spellings[3 * i + 1] = word.toUpperCase();
+            spellings[3 * i + 2] = word.replace('e', 'é');
+        }
+        normalized = buildNormalized();
+        plain = buildPlain();
+
+        // Queries come in any spelling.
+        String[] lower = Datasets.prefixes(words, 3, PREFIXES);
+        Random random = new Random(size);
+        prefixes = new String[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            prefixes[i] = random.nextBoolean() ? lower[i].toUpperCase() : lower[i];
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, batchSize = 1)
+    public NormalizedPatriciaTrie buildNormalized() {
+        NormalizedPatriciaTrie trie = new NormalizedPatriciaTrie();
+        for (String spelling : spellings) {
+            trie.put(spelling);
+        }
+        return trie;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, batchSize = 1)
+    public PatriciaTrie<String> buildPlain() {
+        PatriciaTrie<String> trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        for (String spelling : spellings) {
+            trie.put(NormalizingKeyComparator.normalize(spelling) + '\u0000' + spelling);
+        }
+        return trie;
+    }
+
+    @Benchmark
+    public List<String> suggestionsNormalized() {
+        return normalized.getSuggestions(nextPrefix(), limit);
+    }
+
+    @Benchmark
+    public List<String> suggestionsPlain() {
+        List<String> suggestions = plain.getSuggestions(NormalizingKeyComparator.normalize(nextPrefix()), limit);
+        for (int i = 0; i < suggestions.size(); i++) {
+            String key = suggestions.get(i);
+            suggestions.set(i, key.substring(key.indexOf('\u0000') + 1));
+        }
+        return suggestions;
+    }
+
+    private String nextPrefix() {
+        next = (next + 1) & (PREFIXES - 1);
+        return prefixes[next];
+    }
+}
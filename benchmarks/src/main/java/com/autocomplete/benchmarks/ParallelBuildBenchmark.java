@@ -0,0 +1,67 @@
+package com.autocomplete.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.PatriciaTrie;
+
+/**
+ * Scaling of the parallel bulk load over the number of threads, next to the sequential bulk load of the same keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms8g", "-Xmx8g" })
+public class ParallelBuildBenchmark {
+
+    @Param({ Datasets.WORDS, Datasets.URLS })
+    public String dataset;
+
+    @Param({ "1000000", "10000000" })
+    public int size;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    private String[] keys;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = Datasets.generate(dataset, size);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public PatriciaTrie<String> bulkLoad() {
+        return PatriciaTrie.bulkLoad(StringKeyComparator.CHAR, Arrays.asList(keys).iterator());
+    }
+
+    @Benchmark
+    public PatriciaTrie<String> bulkLoadParallel() {
+        return PatriciaTrie.bulkLoad(StringKeyComparator.CHAR, Arrays.asList(keys).iterator(), pool);
+    }
+}
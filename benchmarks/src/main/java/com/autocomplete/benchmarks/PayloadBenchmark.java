@@ -0,0 +1,112 @@
+package com.autocomplete.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.PatriciaMap;
+import com.autocomplete.datatype.PatriciaTrie;
+
+/**
+ * Suggestions with a payload per key and counting keys, with the payloads in a {@link PatriciaMap} against a
+ * {@link PatriciaTrie} next to a HashMap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class PayloadBenchmark {
+
+    private static final int PREFIXES = 1024;
+
+    @Param({ Datasets.WORDS, Datasets.URLS })
+    public String dataset;
+
+    @Param({ "100000", "1000000" })
+    public int size;
+
+    @Param({ "10" })
+    public int limit;
+
+    private PatriciaTrie<String> trie;
+    private Map<String, Long> documents;
+    private PatriciaMap<String, Long> map;
+    private String[] keys;
+    private String[] prefixes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = Datasets.generate(dataset, size);
+        trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        documents = new HashMap<>();
+        map = new PatriciaMap<>(StringKeyComparator.CHAR);
+        for (int i = 0; i < keys.length; i++) {
+            trie.put(keys[i]);
+            documents.put(keys[i], (long) i);
+            map.putValue(keys[i], Long.valueOf(i));
+        }
+        prefixes = Datasets.prefixes(keys, 3, PREFIXES);
+    }
+
+    @Benchmark
+    public List<Long> suggestionsWithHashMap() {
+        List<String> suggestions = trie.getSuggestions(nextPrefix(), limit);
+        List<Long> ids = new ArrayList<>(suggestions.size());
+        for (String key : suggestions) {
+            ids.add(documents.get(key));
+        }
+        return ids;
+    }
+
+    @Benchmark
+    public List<PatriciaMap.Entry<String, Long>> suggestionEntries() {
+        return map.getSuggestionEntries(nextPrefix(), limit);
+    }
+
+    @Benchmark
+    public Long countWithGetAndPut() {
+        String key = nextKey();
+        Long count = trie.getScore(key);
+        trie.put(key, count == null ? 1L : count + 1L);
+        return count;
+    }
+
+    @Benchmark
+    public long countWithMerge() {
+        return trie.mergeScore(nextKey(), 1L, Long::sum);
+    }
+
+    @Benchmark
+    public long countWithMergePayload() {
+        return map.mergePayload(nextKey(), 1L, Long::sum);
+    }
+
+    private String nextPrefix() {
+        next = (next + 1) & (PREFIXES - 1);
+        return prefixes[next];
+    }
+
+    private String nextKey() {
+        next = (next + 1) % keys.length;
+        return keys[next];
+    }
+}
@@ -0,0 +1,94 @@
+package com.autocomplete.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.comparators.Utf8KeyComparator;
+import com.autocomplete.datatype.FrozenPatriciaTrie;
+import com.autocomplete.datatype.PatriciaTrie;
+import com.autocomplete.datatype.Utf8PatriciaTrie;
+
+/**
+ * Latency of finding the subtree of a prefix, measured as a lookup of the first suggestion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class PrefixLookupBenchmark {
+
+    private static final int PREFIXES = 4096;
+
+    @Param({ Datasets.WORDS, Datasets.URLS })
+    public String dataset;
+
+    @Param({ "10000", "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "1", "3", "6", "12" })
+    public int prefixLength;
+
+    private PatriciaTrie<String> trie;
+    private FrozenPatriciaTrie frozen;
+    private Utf8PatriciaTrie utf8;
+    private String[] prefixes;
+    private byte[][] utf8Prefixes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] keys = Datasets.generate(dataset, size);
+        trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        for (String key : keys) {
+            trie.put(key);
+        }
+        frozen = trie.freeze();
+        utf8 = new Utf8PatriciaTrie();
+        for (String key : keys) {
+            utf8.put(key);
+        }
+
+        prefixes = Datasets.prefixes(keys, prefixLength, PREFIXES);
+        utf8Prefixes = new byte[PREFIXES][];
+        for (int i = 0; i < PREFIXES; i++) {
+            utf8Prefixes[i] = Utf8KeyComparator.encode(prefixes[i]);
+        }
+    }
+
+    @Benchmark
+    public List<String> lookup() {
+        return trie.getSuggestions(nextPrefix(), 1);
+    }
+
+    @Benchmark
+    public FrozenPatriciaTrie lookupFrozen() {
+        return frozen.subtree(nextPrefix());
+    }
+
+    @Benchmark
+    public List<byte[]> lookupUtf8() {
+        next = (next + 1) & (PREFIXES - 1);
+        return utf8.getSuggestions(utf8Prefixes[next], 1);
+    }
+
+    private String nextPrefix() {
+        next = (next + 1) & (PREFIXES - 1);
+        return prefixes[next];
+    }
+}
@@ -0,0 +1,111 @@
+package com.autocomplete.benchmarks;
+
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.LongPatriciaTrie;
+import com.autocomplete.datatype.PatriciaTrie;
+
+/**
+ * Lookups and prefix scans of long ids in a {@link LongPatriciaTrie}, against the same ids as fixed width hex
+ * strings in a {@link PatriciaTrie}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class PrimitiveTrieBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({ "100000", "1000000" })
+    public int size;
+
+    /**
+     * Prefix length in bits for the scans, a multiple of 4 so that it is a whole number of hex digits.
+     */
+    @Param({ "24" })
+    public int prefixBits;
+
+    private LongPatriciaTrie longTrie;
+    private PatriciaTrie<String> stringTrie;
+    private LongPatriciaTrie.Cursor cursor;
+    private long[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(size);
+        longTrie = new LongPatriciaTrie();
+        stringTrie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextLong();
+            longTrie.add(keys[i]);
+            stringTrie.put(hex(keys[i]));
+        }
+        cursor = longTrie.cursor();
+
+        ids = new long[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            ids[i] = keys[random.nextInt(size)];
+        }
+    }
+
+    @Benchmark
+    public boolean containsLong() {
+        return longTrie.contains(nextId());
+    }
+
+    @Benchmark
+    public Long containsString() {
+        return stringTrie.getScore(hex(nextId()));
+    }
+
+    @Benchmark
+    public long prefixLong() {
+        long sum = 0;
+        cursor.seek(nextId(), prefixBits);
+        while (cursor.hasNext()) {
+            sum += cursor.nextLong();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long prefixString() {
+        long sum = 0;
+        Iterator<String> iterator = stringTrie.suggestionIterator(hex(nextId()).substring(0, prefixBits / 4));
+        while (iterator.hasNext()) {
+            sum += Long.parseUnsignedLong(iterator.next(), 16);
+        }
+        return sum;
+    }
+
+    private long nextId() {
+        next = (next + 1) & (QUERIES - 1);
+        return ids[next];
+    }
+
+    private static String hex(long id) {
+        String digits = Long.toHexString(id);
+        return "0000000000000000".substring(digits.length()) + digits;
+    }
+}
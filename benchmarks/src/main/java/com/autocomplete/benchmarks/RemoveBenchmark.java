@@ -0,0 +1,85 @@
+package com.autocomplete.benchmarks;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.PatriciaTrie;
+
+/**
+ * Time to apply a deny-list to a trie, key by key and as a filter over all keys. The trie is rebuilt before every
+ * invocation, so only single shot times are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class RemoveBenchmark {
+
+    @Param({ Datasets.WORDS, Datasets.URLS })
+    public String dataset;
+
+    @Param({ "100000", "1000000" })
+    public int size;
+
+    @Param({ "1000", "10000" })
+    public int denied;
+
+    private List<String> keys;
+    private List<String> denyList;
+    private Set<String> denySet;
+    private PatriciaTrie<String> trie;
+
+    @Setup(Level.Trial)
+    public void setupKeys() {
+        keys = Arrays.asList(Datasets.sorted(Datasets.generate(dataset, size)));
+
+        Random random = new Random(denied);
+        String[] deny = new String[denied];
+        for (int i = 0; i < denied; i++) {
+            deny[i] = keys.get(random.nextInt(keys.size()));
+        }
+        denyList = Arrays.asList(deny);
+        denySet = new HashSet<>(denyList);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupTrie() {
+        trie = PatriciaTrie.bulkLoad(StringKeyComparator.CHAR, keys.iterator());
+    }
+
+    @Benchmark
+    public int removeAll() {
+        return trie.removeAll(denyList);
+    }
+
+    @Benchmark
+    public int retainAll() {
+        return trie.retainAll(new Predicate<String>() {
+            @Override
+            public boolean test(String key) {
+                return !denySet.contains(key);
+            }
+        });
+    }
+}
@@ -0,0 +1,214 @@
+package com.autocomplete.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.CompactPatriciaTrie;
+import com.autocomplete.datatype.PatriciaTrie;
+import com.autocomplete.metrics.Histogram;
+import com.autocomplete.server.SuggestionServer;
+
+/**
+ * Closed-loop load generator for {@link SuggestionServer}. Starts the server in this JVM with 1, 2, 4, ... workers up
+ * to the number of cores and reports QPS and latency percentiles for every step. Each client connection keeps the
+ * given number of requests in flight by pipelining them on a kept-alive connection.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.autocomplete.benchmarks.ServerLoadGenerator \
+ *     [seconds per step] [connections per worker] [pipeline depth] [keys]
+ * </pre>
+ *
+ * Clients run in the same JVM and compete with the server for the cores, so the numbers are a lower bound for a
+ * server on its own machine.
+ */
+public class ServerLoadGenerator {
+
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final int PREFIXES = 4096;
+    private static final int LIMIT = 10;
+
+    private final String[] requests;
+    private final Histogram latencyNanos = new Histogram();
+    private final AtomicLong ok = new AtomicLong();
+    private final AtomicLong busy = new AtomicLong();
+    private volatile long deadline;
+
+    private ServerLoadGenerator(String[] requests) {
+        this.requests = requests;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int connectionsPerWorker = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 1000000;
+        SuggestionServer.enableNoDelay();
+
+        String[] keys = Datasets.generate(Datasets.WORDS, size);
+        PatriciaTrie.Builder<String> builder = new PatriciaTrie.Builder<>(StringKeyComparator.CHAR);
+        for (String key : keys) {
+            builder.add(key);
+        }
+        CompactPatriciaTrie trie = builder.build().freeze();
+
+        String[] prefixes = Datasets.prefixes(keys, 3, PREFIXES);
+        String[] requests = new String[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            String prefix = URLEncoder.encode(prefixes[i], StandardCharsets.UTF_8);
+            requests[i] = "GET " + SuggestionServer.PATH + "?q=" + prefix + "&n=" + LIMIT
+                    + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d keys, %d cores, %d connections per worker, pipeline depth %d, %d s per step%n",
+                trie.size(), cores, connectionsPerWorker, depth, seconds);
+        System.out.printf("%8s %12s %12s %10s %10s %10s %10s%n", "workers", "connections", "qps", "p50 us", "p99 us",
+                "p99.9 us", "busy");
+        for (int workers = 1;; workers = Math.min(workers * 2, cores)) {
+            new ServerLoadGenerator(requests).step(trie, workers, workers * connectionsPerWorker, depth, seconds);
+            if (workers == cores) {
+                break;
+            }
+        }
+    }
+
+    private void step(CompactPatriciaTrie trie, int workers, int connections, int depth, int seconds)
+            throws Exception {
+        SuggestionServer server = new SuggestionServer(trie, new InetSocketAddress("127.0.0.1", 0), workers,
+                QUEUE_CAPACITY);
+        server.start();
+        try {
+            // Warm up for a second, then measure.
+            run(server.getAddress(), connections, depth, 1);
+            latencyNanos.reset();
+            ok.set(0);
+            busy.set(0);
+
+            long start = System.nanoTime();
+            run(server.getAddress(), connections, depth, seconds);
+            double elapsed = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%8d %12d %12.0f %10.1f %10.1f %10.1f %10d%n", workers, connections, ok.get() / elapsed,
+                    latencyNanos.valueAtPercentile(50.0) / 1e3, latencyNanos.valueAtPercentile(99.0) / 1e3,
+                    latencyNanos.valueAtPercentile(99.9) / 1e3, busy.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private void run(InetSocketAddress address, int connections, int depth, int seconds) throws Exception {
+        deadline = System.nanoTime() + seconds * 1000000000L;
+        List<Thread> clients = new ArrayList<>();
+        final List<Exception> failures = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            final Client client = new Client(address, depth, i);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        client.run();
+                    } catch (IOException e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                }
+            }, "load-client-" + i);
+            clients.add(thread);
+            thread.start();
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+        if (!failures.isEmpty()) {
+            throw failures.get(0);
+        }
+    }
+
+    private class Client {
+
+        private final InetSocketAddress address;
+        private final int depth;
+        private final Random random;
+
+        private Client(InetSocketAddress address, int depth, int seed) {
+            this.address = address;
+            this.depth = depth;
+            this.random = new Random(seed);
+        }
+
+        private void run() throws IOException {
+            try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+                socket.setTcpNoDelay(true);
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                StringBuilder batch = new StringBuilder();
+
+                while (System.nanoTime() < deadline) {
+                    batch.setLength(0);
+                    for (int i = 0; i < depth; i++) {
+                        batch.append(requests[random.nextInt(requests.length)]);
+                    }
+                    long start = System.nanoTime();
+                    out.write(batch.toString().getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+
+                    for (int i = 0; i < depth; i++) {
+                        int status = readResponse(in);
+                        if (status == 200) {
+                            latencyNanos.record(System.nanoTime() - start);
+                            ok.incrementAndGet();
+                        } else if (status == 503) {
+                            busy.incrementAndGet();
+                        } else {
+                            throw new IOException("Unexpected status " + status);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Reads one response and returns its status code.
+         */
+        private int readResponse(InputStream in) throws IOException {
+            String statusLine = readLine(in);
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            int contentLength = 0;
+            for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+            }
+            for (int skipped = 0; skipped < contentLength; skipped++) {
+                if (in.read() < 0) {
+                    throw new IOException("Connection closed");
+                }
+            }
+            return status;
+        }
+
+        private String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            for (int c = in.read(); c != '\n'; c = in.read()) {
+                if (c < 0) {
+                    throw new IOException("Connection closed");
+                } else if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+    }
+}
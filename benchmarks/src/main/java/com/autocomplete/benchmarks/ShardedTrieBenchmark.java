@@ -0,0 +1,79 @@
+package com.autocomplete.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.ShardedPatriciaTrie;
+
+/**
+ * Suggestions from a {@link ShardedPatriciaTrie}. With one shard this is a plain trie behind the routing, short
+ * prefixes span several shards and longer ones usually a single shard.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ShardedTrieBenchmark {
+
+    private static final int PREFIXES = 1024;
+
+    @Param({ "1000000" })
+    public int size;
+
+    @Param({ "1", "16" })
+    public int shards;
+
+    @Param({ "1", "3" })
+    public int prefixLength;
+
+    @Param({ "10" })
+    public int limit;
+
+    private ShardedPatriciaTrie<String> trie;
+    private String[] prefixes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] keys = Datasets.generate(Datasets.WORDS, size);
+        trie = ShardedPatriciaTrie.bulkLoad(StringKeyComparator.CHAR, Arrays.asList(keys).iterator(), shards);
+        Random random = new Random(size);
+        for (String key : keys) {
+            trie.put(key, random.nextInt(1000000));
+        }
+        prefixes = Datasets.prefixes(keys, prefixLength, PREFIXES);
+    }
+
+    @Benchmark
+    public List<String> suggestions() {
+        return trie.getSuggestions(nextPrefix(), limit);
+    }
+
+    @Benchmark
+    public List<String> topSuggestions() {
+        return trie.getTopSuggestions(nextPrefix(), limit);
+    }
+
+    private String nextPrefix() {
+        next = (next + 1) & (PREFIXES - 1);
+        return prefixes[next];
+    }
+}
@@ -0,0 +1,112 @@
+package com.autocomplete.benchmarks;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.PatriciaTrie;
+import com.autocomplete.metrics.CountingKeyComparator;
+import com.autocomplete.metrics.TrieStats;
+
+/**
+ * Cost of producing the top N suggestions for short prefixes, in bit order and by score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class SuggestionBenchmark {
+
+    private static final int PREFIXES = 1024;
+
+    @Param({ Datasets.WORDS, Datasets.URLS })
+    public String dataset;
+
+    @Param({ "10000", "100000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "1", "3" })
+    public int prefixLength;
+
+    @Param({ "10", "100", "1000" })
+    public int limit;
+
+    /**
+     * Run with -p metrics=true to measure the cost of the instrumentation.
+     */
+    @Param({ "false" })
+    public boolean metrics;
+
+    private PatriciaTrie<String> trie;
+    private String[] prefixes;
+    private String[] pageTokens;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] keys = Datasets.generate(dataset, size);
+        Random random = new Random(size);
+        if (metrics) {
+            TrieStats stats = new TrieStats();
+            trie = new PatriciaTrie<>(new CountingKeyComparator<>(StringKeyComparator.CHAR, stats));
+            trie.setMetrics(stats);
+        } else {
+            trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        }
+        for (String key : keys) {
+            trie.put(key, random.nextInt(1000000));
+        }
+        prefixes = Datasets.prefixes(keys, prefixLength, PREFIXES);
+
+        // Resume after the last key of the first page.
+        pageTokens = new String[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            List<String> page = trie.getSuggestions(prefixes[i], limit);
+            pageTokens[i] = page.get(page.size() - 1);
+        }
+    }
+
+    @Benchmark
+    public List<String> suggestions() {
+        return trie.getSuggestions(nextPrefix(), limit);
+    }
+
+    @Benchmark
+    public List<String> topSuggestions() {
+        return trie.getTopSuggestions(nextPrefix(), limit);
+    }
+
+    @Benchmark
+    public int secondPage() {
+        next = (next + 1) & (PREFIXES - 1);
+        Iterator<String> iterator = trie.suggestionIterator(prefixes[next], pageTokens[next]);
+        int count = 0;
+        while (count < limit && iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+
+    private String nextPrefix() {
+        next = (next + 1) & (PREFIXES - 1);
+        return prefixes[next];
+    }
+}
@@ -0,0 +1,170 @@
+package com.autocomplete.comparators;
+
+import java.text.Normalizer;
+
+/**
+ * Compares strings by their case and accent folded chars, so that "Café", "cafe" and "CAFE" have the same bits and
+ * end up as one key. Folding is a table lookup per char, computed once from the NFKD decomposition of every char:
+ * combining marks are dropped and the remaining char is case folded. Chars which decompose into several base chars,
+ * such as the ligature "ﬁ" or "ß", only have their case folded, so that every char still maps to exactly one char
+ * and the bits of a key can be read without building its folded form. For the same reason, keys which are already
+ * decomposed keep their combining marks as chars of their own, they should be composed (NFC) before they are added.
+ *
+ * Keys can be any char sequence, such as a view of a part of a string, see {@link #forCharSequences()}.
+ *
+ * The table takes 128KB and is built the first time a char is folded, not when the class is loaded. Building it
+ * normalizes every char outside the blocks known to have no decompositions (ASCII, CJK ideographs, Hangul syllables
+ * and private use chars) and takes tens of milliseconds. Servers which don't want that on their first request call
+ * {@link #fold(char)} once at startup.
+ */
+public class NormalizingKeyComparator<K extends CharSequence> implements KeyComparator<K> {
+
+    public static final NormalizingKeyComparator<String> FOLDED = new NormalizingKeyComparator<>();
+
+    private NormalizingKeyComparator() {
+    }
+
+    /**
+     * Returns the comparator for keys of the given type of char sequence. It has the same bits as {@link #FOLDED}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends CharSequence> NormalizingKeyComparator<K> forCharSequences() {
+        return (NormalizingKeyComparator<K>) (NormalizingKeyComparator<?>) FOLDED;
+    }
+
+    /**
+     * Returns the folded form of the given char.
+     */
+    public static char fold(char c) {
+        return Table.FOLD[c];
+    }
+
+    /**
+     * Returns the folded form of the given string, the string its bits are read from.
+     */
+    public static String normalize(String key) {
+        char[] chars = new char[key.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Table.FOLD[key.charAt(i)];
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public int lengthInBits(K key) {
+        return key.length() * Character.SIZE;
+    }
+
+    @Override
+    public boolean isBitSet(K key, int bitIndex) {
+        // Negative indices turn into huge ones and are out of bounds as well.
+        int index = bitIndex >>> 4;
+        if (index >= key.length()) {
+            return false;
+        }
+
+        return (Table.FOLD[key.charAt(index)] & (0x8000 >>> (bitIndex & 15))) != 0;
+    }
+
+    @Override
+    public int bitIndex(K key, K otherKey) {
+        int length = Math.min(key.length(), otherKey.length());
+        int bits = 0;
+
+        for (int i = 0; i < length; i++) {
+            int ch1 = Table.FOLD[key.charAt(i)];
+            int ch2 = Table.FOLD[otherKey.charAt(i)];
+
+            if (ch1 != ch2) {
+                return (i << 4) + firstBit(ch1 ^ ch2);
+            }
+            bits |= ch1;
+        }
+
+        // The rest of the longer key is compared against zeros.
+        K longer = key.length() > otherKey.length() ? key : otherKey;
+        for (int i = length; i < longer.length(); i++) {
+            int ch = Table.FOLD[longer.charAt(i)];
+            if (ch != 0) {
+                return (i << 4) + firstBit(ch);
+            }
+        }
+
+        // All bits are 0
+        if (bits == 0) {
+            return KeyComparator.NULL_BIT_KEY;
+        }
+
+        // Both keys are equal
+        return KeyComparator.EQUAL_BIT_KEY;
+    }
+
+    /**
+     * Compares the folded chars, a key before all longer keys it is a prefix of.
+     */
+    @Override
+    public int compare(K key, K other) {
+        int length = Math.min(key.length(), other.length());
+        for (int i = 0; i < length; i++) {
+            char ch1 = Table.FOLD[key.charAt(i)];
+            char ch2 = Table.FOLD[other.charAt(i)];
+            if (ch1 != ch2) {
+                return ch1 - ch2;
+            }
+        }
+        return key.length() - other.length();
+    }
+
+    /**
+     * Holds the fold table, so that it is built on first use.
+     */
+    private static final class Table {
+
+        private static final char[] FOLD = build();
+
+        private static char[] build() {
+            char[] fold = new char[Character.MAX_VALUE + 1];
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                fold[c] = foldCase(hasDecomposition((char) c) ? stripMarks((char) c) : (char) c);
+            }
+            return fold;
+        }
+
+        /**
+         * Returns false for the blocks in which no char has a decomposition, as well as surrogates, so that only the
+         * other chars are normalized. Hangul syllables decompose into several jamo, which are all base chars, so they
+         * stay as they are too.
+         */
+        private static boolean hasDecomposition(char c) {
+            return !(c < 0x80 || (c >= 0x3400 && c <= 0x4DBF) || (c >= 0x4E00 && c <= 0x9FFF)
+                    || (c >= 0xAC00 && c <= 0xF8FF));
+        }
+    }
+
+    private static int firstBit(int unit) {
+        return Integer.numberOfLeadingZeros(unit) - (Integer.SIZE - Character.SIZE);
+    }
+
+    /**
+     * Returns the base char of the NFKD decomposition of c, or c if it decomposes into more than one base char.
+     */
+    private static char stripMarks(char c) {
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFKD);
+        char base = 0;
+        int bases = 0;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char d = decomposed.charAt(i);
+            int type = Character.getType(d);
+            if (type != Character.NON_SPACING_MARK && type != Character.COMBINING_SPACING_MARK
+                    && type != Character.ENCLOSING_MARK) {
+                base = d;
+                bases++;
+            }
+        }
+        return bases == 1 ? base : c;
+    }
+
+    private static char foldCase(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
@@ -1,11 +1,15 @@
 package com.autocomplete.comparators;
 
+import java.util.Arrays;
+
 public class StringKeyComparator implements KeyComparator<String> {
 
     public static final StringKeyComparator CHAR = new StringKeyComparator(Character.SIZE);
 
     private final int size;
     private final int msb;
+    private final int shift;
+    private final int unitMask;
 
     private StringKeyComparator(int size) {
         this(size, 1 << size - 1);
@@ -14,6 +18,8 @@ public class StringKeyComparator implements KeyComparator<String> {
     private StringKeyComparator(int size, int msb) {
         this.size = size;
         this.msb = msb;
+        this.shift = Integer.numberOfTrailingZeros(size);
+        this.unitMask = (1 << size) - 1;
     }
 
     @Override
@@ -23,43 +29,41 @@ public class StringKeyComparator implements KeyComparator<String> {
 
     @Override
     public boolean isBitSet(String key, int bitIndex) {
-        if (bitIndex >= lengthInBits(key)) {
+        // Negative indices turn into huge ones and are out of bounds as well.
+        int index = bitIndex >>> shift;
+        if (index >= key.length()) {
             return false;
         }
 
-        int index = bitIndex / size;
-        int bit = bitIndex % size;
-
-        return (key.charAt(index) & mask(bit)) != 0;
+        return (key.charAt(index) & mask(bitIndex & (size - 1))) != 0;
     }
 
     @Override
     public int bitIndex(String key, String otherKey) {
-
-        boolean allNull = true;
-        int length = Math.max(key.length(), otherKey.length());
+        int length = Math.min(key.length(), otherKey.length());
+        int bits = 0;
 
         for (int i = 0; i < length; i++) {
-
-            char ch1 = valueAt(key, i);
-            char ch2 = valueAt(otherKey, i);
+            int ch1 = key.charAt(i) & unitMask;
+            int ch2 = otherKey.charAt(i) & unitMask;
 
             if (ch1 != ch2) {
-                int xor = ch1 ^ ch2;
-                for (int j = 0; j < size; j++) {
-                    if ((xor & mask(j)) != 0) {
-                        return (i * size) + j;
-                    }
-                }
+                return (i << shift) + firstBit(ch1 ^ ch2);
             }
+            bits |= ch1;
+        }
 
-            if (ch1 != 0) {
-                allNull = false;
+        // The rest of the longer key is compared against zeros.
+        String longer = key.length() > otherKey.length() ? key : otherKey;
+        for (int i = length; i < longer.length(); i++) {
+            int ch = longer.charAt(i) & unitMask;
+            if (ch != 0) {
+                return (i << shift) + firstBit(ch);
             }
         }
 
         // All bits are 0
-        if (allNull) {
+        if (bits == 0) {
             return KeyComparator.NULL_BIT_KEY;
         }
 
@@ -67,6 +71,37 @@ public class StringKeyComparator implements KeyComparator<String> {
         return KeyComparator.EQUAL_BIT_KEY;
     }
 
+    /**
+     * Returns the index of the first bit that is different in the two char ranges, with the shorter range padded
+     * with zeros. Compares several chars at a time, for keys which are available as arrays.
+     */
+    public static int bitIndex(char[] key, int from, int to, char[] otherKey, int otherFrom, int otherTo) {
+        int length = Math.min(to - from, otherTo - otherFrom);
+        int index = Arrays.mismatch(key, from, from + length, otherKey, otherFrom, otherFrom + length);
+        if (index >= 0) {
+            int xor = key[from + index] ^ otherKey[otherFrom + index];
+            return index * Character.SIZE + Integer.numberOfLeadingZeros(xor) - (Integer.SIZE - Character.SIZE);
+        }
+
+        boolean keyIsLonger = to - from > otherTo - otherFrom;
+        char[] longer = keyIsLonger ? key : otherKey;
+        int offset = keyIsLonger ? from : otherFrom;
+        int end = keyIsLonger ? to : otherTo;
+        for (int i = offset + length; i < end; i++) {
+            if (longer[i] != 0) {
+                return (i - offset) * Character.SIZE + Integer.numberOfLeadingZeros(longer[i])
+                        - (Integer.SIZE - Character.SIZE);
+            }
+        }
+
+        for (int i = from; i < from + length; i++) {
+            if (key[i] != 0) {
+                return KeyComparator.EQUAL_BIT_KEY;
+            }
+        }
+        return KeyComparator.NULL_BIT_KEY;
+    }
+
     @Override
     public int compare(String o1, String o2) {
         return ((Comparable<String>) o1).compareTo(o2);
@@ -80,16 +115,9 @@ public class StringKeyComparator implements KeyComparator<String> {
     }
 
     /**
-     * Returns the character at the given index.
+     * Returns the index of the most significant set bit of a unit.
      */
-    private char valueAt(String value, int index) {
-        if (index < value.length()) {
-            char ch = value.charAt(index);
-            if (size == Byte.SIZE) {
-                ch &= 0xFF;
-            }
-            return ch;
-        }
-        return 0;
+    private int firstBit(int unit) {
+        return Integer.numberOfLeadingZeros(unit) - (Integer.SIZE - size);
     }
 }
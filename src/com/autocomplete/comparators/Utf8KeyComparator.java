@@ -0,0 +1,82 @@
+package com.autocomplete.comparators;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compares UTF-8 encoded keys with 8 bits per unit. ASCII text needs half the bits of {@link StringKeyComparator#CHAR},
+ * so tries over it are up to half as deep. The key order is the unsigned byte order, which is the code point order.
+ */
+public class Utf8KeyComparator implements KeyComparator<byte[]> {
+
+    public static final Utf8KeyComparator UTF8 = new Utf8KeyComparator();
+
+    private Utf8KeyComparator() {
+    }
+
+    /**
+     * Returns the UTF-8 encoding of the given string.
+     */
+    public static byte[] encode(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static String decode(byte[] key) {
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int lengthInBits(byte[] key) {
+        return key.length * Byte.SIZE;
+    }
+
+    @Override
+    public boolean isBitSet(byte[] key, int bitIndex) {
+        // Negative indices turn into huge ones and are out of bounds as well.
+        int index = bitIndex >>> 3;
+        if (index >= key.length) {
+            return false;
+        }
+
+        return (key[index] & (0x80 >>> (bitIndex & 7))) != 0;
+    }
+
+    @Override
+    public int bitIndex(byte[] key, byte[] otherKey) {
+        int length = Math.min(key.length, otherKey.length);
+        int index = Arrays.mismatch(key, 0, length, otherKey, 0, length);
+        if (index >= 0) {
+            return index * Byte.SIZE + firstBit(key[index] ^ otherKey[index]);
+        }
+
+        // The rest of the longer key is compared against zeros.
+        byte[] longer = key.length > otherKey.length ? key : otherKey;
+        for (int i = length; i < longer.length; i++) {
+            if (longer[i] != 0) {
+                return i * Byte.SIZE + firstBit(longer[i]);
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (key[i] != 0) {
+                // Both keys are equal
+                return KeyComparator.EQUAL_BIT_KEY;
+            }
+        }
+
+        // All bits are 0
+        return KeyComparator.NULL_BIT_KEY;
+    }
+
+    @Override
+    public int compare(byte[] o1, byte[] o2) {
+        return Arrays.compareUnsigned(o1, o2);
+    }
+
+    /**
+     * Returns the index of the most significant set bit of a byte.
+     */
+    private static int firstBit(int unit) {
+        return Integer.numberOfLeadingZeros(unit & 0xFF) - (Integer.SIZE - Byte.SIZE);
+    }
+}
@@ -0,0 +1,1174 @@
+package com.autocomplete.datatype;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.LongBinaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.autocomplete.metrics.TrieMetrics;
+
+/**
+ * Trie of strings which branches on a whole char per node instead of a single bit. Keys are in the same order as in a
+ * {@link PatriciaTrie} of {@link com.autocomplete.comparators.StringKeyComparator#CHAR} keys, and the trie has the
+ * public methods of such a PatriciaTrie with the same results, so callers can switch between the two. Fuzzy
+ * suggestions with the same distance come in key order here. The package-private node access which
+ * {@link PatriciaMap}, {@link SuggestionCache}, {@link CompletionSession} and {@link ShardedPatriciaTrie} build on
+ * is only in PatriciaTrie.
+ *
+ * Nodes are path compressed: a node stands for the chars its keys share after the char it was reached by, and only
+ * exists where keys branch or end. A lookup takes one step per branching char rather than one per distinguishing
+ * bit, and reads the chars it compares from the node itself instead of from a key elsewhere on the heap. The first
+ * four chars of a node's label are packed into a long, longer labels are skipped over and checked against a key of
+ * the subtree once the descent is done, as in the adaptive radix tree (ART).
+ *
+ * The children are stored by size, as in ART: up to four with their chars packed into a long and the children in
+ * fields of the node, then as sorted arrays searched by binary search, and once there are more than sixteen whose
+ * chars fall into a range of 256, in an array indexed by char.
+ *
+ * A node takes about 96 bytes and there are up to two per key, so the shorter paths cost about twice the memory of
+ * a PatriciaTrie.
+ */
+public class AdaptivePatriciaTrie {
+
+    /**
+     * Number of label chars packed into a node.
+     */
+    static final int PACKED = 4;
+
+    private static final int SORTED_CAPACITY = 8;
+    private static final int DIRECT_THRESHOLD = 16;
+    private static final int DIRECT_SPAN = 256;
+
+    private final Node root = new Node();
+    private int size = 0;
+
+    /**
+     * Sink for hot path measurements, null if the trie isn't instrumented.
+     */
+    private TrieMetrics metrics;
+
+    /**
+     * Reports lookup depths, insert path lengths and getSuggestions latencies to the given sink, or stops reporting
+     * if it is null. A lookup visits one node per char it branches on.
+     */
+    public void setMetrics(TrieMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Builds a trie from the given keys, which are sorted first and then put in ascending order.
+     */
+    public static AdaptivePatriciaTrie bulkLoad(Iterator<String> keys) {
+        List<String> sorted = new ArrayList<>();
+        while (keys.hasNext()) {
+            sorted.add(TrieUtil.notNull(keys.next(), "Key cannot be null"));
+        }
+        Collections.sort(sorted);
+        return load(sorted);
+    }
+
+    /**
+     * Same as {@link #bulkLoad(Iterator)}, sorting the keys on the threads of the given pool.
+     */
+    public static AdaptivePatriciaTrie bulkLoad(Iterator<String> keys, ForkJoinPool pool) {
+        List<String> keyList = new ArrayList<>();
+        while (keys.hasNext()) {
+            keyList.add(TrieUtil.notNull(keys.next(), "Key cannot be null"));
+        }
+        final String[] sorted = keyList.toArray(new String[0]);
+        pool.invoke(ForkJoinTask.adapt(new Runnable() {
+            @Override
+            public void run() {
+                Arrays.parallelSort(sorted);
+            }
+        }));
+        return load(Arrays.asList(sorted));
+    }
+
+    private static AdaptivePatriciaTrie load(List<String> sortedKeys) {
+        AdaptivePatriciaTrie trie = new AdaptivePatriciaTrie();
+        for (String key : sortedKeys) {
+            trie.put(key);
+        }
+        return trie;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String firstKey() {
+        return size == 0 ? null : firstKeyOf(root);
+    }
+
+    public List<String> getSuggestions(String prefix, int numOfSuggestions) {
+        TrieMetrics metrics = this.metrics;
+        long start = metrics == null ? 0L : System.nanoTime();
+
+        ArrayList<String> suggestions = new ArrayList<>();
+        Iterator<String> iterator = suggestionIterator(prefix);
+        while (suggestions.size() < numOfSuggestions && iterator.hasNext()) {
+            suggestions.add(iterator.next());
+        }
+
+        if (metrics != null) {
+            metrics.suggestions(System.nanoTime() - start);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns the first numOfSuggestions keys for each of the given prefixes, in the order of the prefixes. A lookup
+     * only takes one step per branching char, so every prefix is looked up from the root.
+     */
+    public List<List<String>> getSuggestionsBatch(List<String> prefixes, int numOfSuggestions) {
+        List<List<String>> suggestions = new ArrayList<>(prefixes.size());
+        for (String prefix : prefixes) {
+            suggestions.add(getSuggestions(prefix, numOfSuggestions));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns a lazy iterator over the keys with the given prefix in ascending order.
+     */
+    public Iterator<String> suggestionIterator(String prefix) {
+        return new SuggestionIterator(subtree(TrieUtil.notNull(prefix, "Prefix cannot be null")));
+    }
+
+    /**
+     * Returns a lazy iterator over the keys with the given prefix which come after the given key, for paging with
+     * the last key of the previous page. The key doesn't have to be in the trie anymore. The iterator starts by
+     * descending along the key, so skipping the earlier keys costs one step per branching char.
+     */
+    public Iterator<String> suggestionIterator(String prefix, String after) {
+        Node subtree = subtree(TrieUtil.notNull(prefix, "Prefix cannot be null"));
+        return new SuggestionIterator(subtree, TrieUtil.notNull(after, "Key cannot be null"));
+    }
+
+    /**
+     * Returns a sequential stream over the keys with the given prefix in ascending order.
+     */
+    public Stream<String> suggestionStream(String prefix) {
+        Spliterator<String> spliterator = Spliterators.spliteratorUnknownSize(suggestionIterator(prefix),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.SORTED);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Returns an immutable, compact snapshot of this trie for read-only serving, as
+     * {@link PatriciaTrie#freeze()} does.
+     */
+    public FrozenPatriciaTrie freeze() {
+        List<String> keys = new ArrayList<>(size);
+        Iterator<String> iterator = new SuggestionIterator(root);
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+        }
+        return FrozenPatriciaTrie.of(keys);
+    }
+
+    /**
+     * Returns up to k keys with the given prefix, highest score first and keys with the same score in key order.
+     * Subtrees are expanded best-first on their cached max score, as in
+     * {@link PatriciaTrie#getTopSuggestions(Object, int)}.
+     */
+    public List<String> getTopSuggestions(String prefix, int k) {
+        ArrayList<String> suggestions = new ArrayList<>();
+        Node subtree = subtree(TrieUtil.notNull(prefix, "Prefix cannot be null"));
+        if (subtree == null || k <= 0) {
+            return suggestions;
+        }
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(subtree, false, subtree.maxScore));
+
+        while (suggestions.size() < k && !queue.isEmpty()) {
+            Candidate candidate = queue.poll();
+            Node node = candidate.node;
+            if (candidate.external) {
+                suggestions.add(node.key);
+                continue;
+            }
+
+            if (node.key != null) {
+                queue.add(new Candidate(node, true, node.score));
+            }
+            for (int slot = 0; slot < node.slotCount(); slot++) {
+                Node child = node.childAt(slot);
+                if (child != null) {
+                    queue.add(new Candidate(child, false, child.maxScore));
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns up to k keys which start with a string within maxEdits edits (Levenshtein distance) of the given
+     * prefix, closest first and keys at the same distance in key order.
+     *
+     * The trie is searched best-first alongside one row of the edit distance matrix per subtree, as in
+     * {@link PatriciaTrie#getFuzzySuggestions(Object, int, int)}. The chars from a node to a child are the branching
+     * char and the child's label, so they are matched in one go per child.
+     */
+    public List<String> getFuzzySuggestions(String prefix, int maxEdits, int k) {
+        String query = TrieUtil.notNull(prefix, "Prefix cannot be null");
+        ArrayList<String> suggestions = new ArrayList<>();
+        if (k <= 0 || size == 0) {
+            return suggestions;
+        }
+
+        int[] row = new int[query.length() + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = i;
+        }
+
+        PriorityQueue<FuzzyCandidate> queue = new PriorityQueue<>();
+        queue.add(new FuzzyCandidate(root, false, 0, row, query.length(), 0));
+
+        while (suggestions.size() < k && !queue.isEmpty()) {
+            FuzzyCandidate candidate = queue.poll();
+            Node node = candidate.node;
+            if (candidate.external) {
+                suggestions.add(node.key);
+                continue;
+            }
+
+            if (node.key != null && candidate.best <= maxEdits) {
+                queue.add(new FuzzyCandidate(node, true, candidate.depth, candidate.row, candidate.best,
+                        candidate.best));
+            }
+            for (int slot = 0; slot < node.slotCount(); slot++) {
+                Node child = node.childAt(slot);
+                if (child != null) {
+                    addFuzzyCandidate(queue, candidate, child, query, maxEdits);
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Matches the chars from the parent to the given child against the query and queues the child unless all of its
+     * keys are out of the edit budget.
+     */
+    private static void addFuzzyCandidate(PriorityQueue<FuzzyCandidate> queue, FuzzyCandidate parent, Node child,
+            String query, int maxEdits) {
+        String sample = firstKeyOf(child);
+        int end = parent.depth + 1 + child.prefixLength;
+
+        int[] row = parent.row;
+        int best = parent.best;
+        int min = Integer.MAX_VALUE;
+        for (int i = parent.depth; i < end; i++) {
+            int[] next = new int[row.length];
+            next[0] = row[0] + 1;
+            min = next[0];
+            for (int j = 1; j < row.length; j++) {
+                int cost = query.charAt(j - 1) == sample.charAt(i) ? 0 : 1;
+                next[j] = Math.min(Math.min(row[j] + 1, next[j - 1] + 1), row[j - 1] + cost);
+                min = Math.min(min, next[j]);
+            }
+            row = next;
+            best = Math.min(best, row[row.length - 1]);
+
+            // Longer keys can't get any closer than the smallest entry of the row.
+            if (best > maxEdits && min > maxEdits) {
+                return;
+            }
+        }
+
+        int bound = Math.min(best, min);
+        if (bound <= maxEdits) {
+            queue.add(new FuzzyCandidate(child, false, end, row, best, bound));
+        }
+    }
+
+    /**
+     * Adds the key to the trie. The score of an already existing key is kept.
+     */
+    public void put(String key) {
+        putNode(key);
+    }
+
+    /**
+     * Adds the key to the trie, or updates its score if it already exists.
+     */
+    public void put(String key, long score) {
+        setScore(putNode(key), score);
+    }
+
+    /**
+     * Adds the key with the given score, or replaces the score of an existing key with the result of the remapping
+     * function applied to its old score and the given one, as in {@link java.util.Map#merge}. Returns the new score.
+     */
+    public long mergeScore(String key, long score, LongBinaryOperator remapping) {
+        int oldSize = size;
+        Node node = putNode(key);
+        long newScore = size != oldSize ? score : remapping.applyAsLong(node.score, score);
+        setScore(node, newScore);
+        return newScore;
+    }
+
+    private static void setScore(Node node, long score) {
+        long oldScore = node.score;
+        node.score = score;
+        if (score >= oldScore) {
+            raiseMaxScore(node, score);
+        } else {
+            lowerMaxScore(node);
+        }
+    }
+
+    /**
+     * Returns the score of the given key, or null if the key is not in the trie.
+     */
+    public Long getScore(String key) {
+        Node node = key == null ? null : getNode(key);
+        return node == null ? null : node.score;
+    }
+
+    /**
+     * Removes the key from the trie. Returns true if the key was in the trie.
+     */
+    public boolean remove(String key) {
+        Node node = key == null ? null : getNode(key);
+        if (node == null) {
+            return false;
+        }
+
+        node.key = null;
+        node.score = 0L;
+        size--;
+
+        Node changed = node;
+        if (node != root) {
+            // The node ends where the key does, so the key holds the chars of the path to it.
+            int depth = key.length();
+            if (node.count == 0) {
+                Node parent = node.parent;
+                int parentDepth = depth - node.prefixLength - 1;
+                parent.removeChild(key.charAt(parentDepth));
+                node.parent = null;
+                changed = parent;
+                if (parent != root && parent.key == null && parent.count == 1) {
+                    changed = merge(parent, key, parentDepth);
+                }
+            } else if (node.count == 1) {
+                changed = merge(node, key, depth);
+            }
+        }
+        lowerMaxScore(changed);
+        return true;
+    }
+
+    /**
+     * Removes all keys with the given prefix and returns how many were removed. The subtree of the prefix is cut
+     * off as a whole.
+     */
+    public int removePrefix(String prefix) {
+        Node subtree = subtree(TrieUtil.notNull(prefix, "Prefix cannot be null"));
+        if (subtree == null) {
+            return 0;
+        }
+
+        int removed = 0;
+        Iterator<String> iterator = new SuggestionIterator(subtree);
+        while (iterator.hasNext()) {
+            iterator.next();
+            removed++;
+        }
+        size -= removed;
+
+        if (subtree == root) {
+            root.key = null;
+            root.score = 0L;
+            root.clearChildren();
+            root.maxScore = Long.MIN_VALUE;
+            return removed;
+        }
+
+        // Every key of the subtree passes through its parent, so any of them gives the chars of the path to it.
+        String sample = firstKeyOf(subtree);
+        Node parent = subtree.parent;
+        int parentDepth = depthOf(parent);
+        parent.removeChild(sample.charAt(parentDepth));
+        subtree.parent = null;
+        Node changed = parent;
+        if (parent != root && parent.key == null && parent.count == 1) {
+            changed = merge(parent, sample, parentDepth);
+        }
+        lowerMaxScore(changed);
+        return removed;
+    }
+
+    /**
+     * Removes all given keys and returns how many of them were in the trie.
+     */
+    public int removeAll(Iterable<? extends String> keys) {
+        int removed = 0;
+        for (String key : keys) {
+            if (remove(key)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all keys the filter does not retain and returns how many were removed. Every key is visited once.
+     */
+    public int retainAll(Predicate<? super String> filter) {
+        List<String> removed = new ArrayList<>();
+        Iterator<String> iterator = new SuggestionIterator(root);
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            if (!filter.test(key)) {
+                removed.add(key);
+            }
+        }
+        return removeAll(removed);
+    }
+
+    /**
+     * Returns the node of the given key, or null if the key is not in the trie.
+     */
+    Node getNode(String key) {
+        Node node = root;
+        int depth = 0;
+        boolean skipped = false;
+        while (depth < key.length()) {
+            Node child = node.child(key.charAt(depth));
+            if (child == null || !matchesPacked(child, key, depth + 1)) {
+                return null;
+            }
+            skipped |= child.prefixLength > PACKED;
+            depth += 1 + child.prefixLength;
+            node = child;
+        }
+
+        if (depth != key.length() || node.key == null) {
+            return null;
+        }
+        // Every char of the key was compared on the way down unless a label was longer than its packed chars.
+        return !skipped || key.equals(node.key) ? node : null;
+    }
+
+    /**
+     * Returns the node of the subtree of all keys with the given prefix, or null if there are none.
+     */
+    private Node subtree(String prefix) {
+        Node node = root;
+        int depth = 0;
+        int visited = 0;
+        boolean skipped = false;
+        while (depth < prefix.length()) {
+            Node child = node.child(prefix.charAt(depth));
+            visited++;
+            if (child == null || !matchesPacked(child, prefix, depth + 1)) {
+                node = null;
+                break;
+            }
+            skipped |= Math.min(child.prefixLength, prefix.length() - depth - 1) > PACKED;
+            depth += 1 + child.prefixLength;
+            node = child;
+        }
+
+        if (metrics != null) {
+            metrics.lookup(visited);
+        }
+        if (node == null || (skipped && !firstKeyOf(node).startsWith(prefix))) {
+            return null;
+        }
+        return node;
+    }
+
+    private Node putNode(String key) {
+        TrieUtil.notNull(key, "Key cannot be null");
+        Node node = root;
+        int depth = 0;
+        int pathLength = 0;
+        while (depth < key.length()) {
+            char c = key.charAt(depth);
+            Node child = node.child(c);
+            if (child == null) {
+                Node leaf = new Node();
+                leaf.setPrefix(key, depth + 1, key.length() - depth - 1);
+                leaf.key = key;
+                leaf.maxScore = 0L;
+                node.addChild(c, leaf);
+                added(node, pathLength);
+                return leaf;
+            }
+
+            int from = depth + 1;
+            int matched = matchPrefix(child, key, from);
+            if (matched < child.prefixLength) {
+                // Split the label of the child at the first char the key doesn't share.
+                String sample = firstKeyOf(child);
+                Node split = new Node();
+                split.setPrefix(sample, from, matched);
+                split.maxScore = child.maxScore;
+                node.replaceChild(c, split);
+
+                char childChar = sample.charAt(from + matched);
+                child.setPrefix(sample, from + matched + 1, child.prefixLength - matched - 1);
+                split.addChild(childChar, child);
+                child = split;
+            }
+
+            depth = from + child.prefixLength;
+            node = child;
+            pathLength++;
+        }
+
+        if (node.key == null) {
+            node.key = key;
+            node.score = 0L;
+            added(node, pathLength);
+        }
+        return node;
+    }
+
+    private void added(Node node, int pathLength) {
+        size++;
+        raiseMaxScore(node, 0L);
+        if (metrics != null) {
+            metrics.insert(pathLength);
+        }
+    }
+
+    /**
+     * Replaces the given node, which has no key and a single child, by that child. The node ends at the given
+     * depth of the key, which passes through it. Returns the parent which now holds the child.
+     */
+    private static Node merge(Node node, String key, int depth) {
+        Node child = node.firstChild();
+        int start = depth - node.prefixLength;
+        child.setPrefix(firstKeyOf(child), start, node.prefixLength + 1 + child.prefixLength);
+
+        Node parent = node.parent;
+        parent.replaceChild(key.charAt(start - 1), child);
+        node.parent = null;
+        return parent;
+    }
+
+    /**
+     * Returns whether the packed label chars of the node match the given string from the given position, as far as
+     * the string goes.
+     */
+    private static boolean matchesPacked(Node node, String s, int from) {
+        int length = Math.min(Math.min(node.prefixLength, PACKED), s.length() - from);
+        for (int i = 0; i < length; i++) {
+            if (node.prefixChar(i) != s.charAt(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of label chars of the node which match the given string from the given position.
+     */
+    private static int matchPrefix(Node node, String s, int from) {
+        int length = Math.min(node.prefixLength, s.length() - from);
+        int packed = Math.min(length, PACKED);
+        for (int i = 0; i < packed; i++) {
+            if (node.prefixChar(i) != s.charAt(from + i)) {
+                return i;
+            }
+        }
+        if (length > PACKED) {
+            String sample = firstKeyOf(node);
+            for (int i = PACKED; i < length; i++) {
+                if (sample.charAt(from + i) != s.charAt(from + i)) {
+                    return i;
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns the smallest key below the given node, which must have one.
+     */
+    private static String firstKeyOf(Node node) {
+        while (node.key == null) {
+            node = node.firstChild();
+        }
+        return node.key;
+    }
+
+    /**
+     * Returns the number of chars of the keys which end at the given node.
+     */
+    private static int depthOf(Node node) {
+        int depth = 0;
+        for (Node current = node; current.parent != null; current = current.parent) {
+            depth += 1 + current.prefixLength;
+        }
+        return depth;
+    }
+
+    private static void raiseMaxScore(Node node, long score) {
+        for (Node current = node; current != null && current.maxScore < score; current = current.parent) {
+            current.maxScore = score;
+        }
+    }
+
+    private static void lowerMaxScore(Node node) {
+        for (Node current = node; current != null; current = current.parent) {
+            long maxScore = current.computeMaxScore();
+            if (maxScore == current.maxScore) {
+                return;
+            }
+            current.maxScore = maxScore;
+        }
+    }
+
+    /**
+     * Node ending at the chars of its label. The children are stored in one of three ways, see the class comment.
+     */
+    static final class Node {
+
+        private static final int SMALL = 0;
+        private static final int SORTED = 1;
+        private static final int DIRECT = 2;
+
+        Node parent;
+
+        /**
+         * Number of chars between the char this node is reached by and the node itself, the first
+         * {@link AdaptivePatriciaTrie#PACKED} of them packed into a long, first char in the top bits.
+         */
+        int prefixLength;
+        long prefix;
+
+        int kind = SMALL;
+        int count;
+
+        /**
+         * Chars of up to four children in ascending order, packed like the label, and the children themselves.
+         */
+        long smallChars;
+        Node child0;
+        Node child1;
+        Node child2;
+        Node child3;
+
+        /**
+         * Sorted chars and children, or children by char minus base.
+         */
+        char[] chars;
+        Node[] children;
+        int base;
+
+        String key;
+        long score;
+        long maxScore = Long.MIN_VALUE;
+
+        void setPrefix(String source, int from, int length) {
+            long packed = 0L;
+            for (int i = 0; i < Math.min(length, PACKED); i++) {
+                packed |= (long) source.charAt(from + i) << shift(i);
+            }
+            prefixLength = length;
+            prefix = packed;
+        }
+
+        char prefixChar(int index) {
+            return (char) (prefix >>> shift(index));
+        }
+
+        /**
+         * Number of child slots, some of which are empty in a node indexed by char.
+         */
+        int slotCount() {
+            return kind == DIRECT ? children.length : count;
+        }
+
+        Node childAt(int slot) {
+            if (kind != SMALL) {
+                return children[slot];
+            }
+            switch (slot) {
+            case 0:
+                return child0;
+            case 1:
+                return child1;
+            case 2:
+                return child2;
+            default:
+                return child3;
+            }
+        }
+
+        Node child(char c) {
+            switch (kind) {
+            case SMALL:
+                for (int i = 0; i < count; i++) {
+                    char smallChar = smallChar(i);
+                    if (smallChar == c) {
+                        return childAt(i);
+                    }
+                    if (smallChar > c) {
+                        return null;
+                    }
+                }
+                return null;
+            case SORTED:
+                int index = Arrays.binarySearch(chars, 0, count, c);
+                return index < 0 ? null : children[index];
+            default:
+                int slot = c - base;
+                return slot < 0 || slot >= children.length ? null : children[slot];
+            }
+        }
+
+        /**
+         * Returns the char of the child in the given slot.
+         */
+        char slotChar(int slot) {
+            switch (kind) {
+            case SMALL:
+                return smallChar(slot);
+            case SORTED:
+                return chars[slot];
+            default:
+                return (char) (base + slot);
+            }
+        }
+
+        void clearChildren() {
+            kind = SMALL;
+            count = 0;
+            smallChars = 0L;
+            child0 = child1 = child2 = child3 = null;
+            chars = null;
+            children = null;
+            base = 0;
+        }
+
+        Node firstChild() {
+            for (int slot = 0; slot < slotCount(); slot++) {
+                Node child = childAt(slot);
+                if (child != null) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        long computeMaxScore() {
+            long maxScore = key == null ? Long.MIN_VALUE : score;
+            for (int slot = 0; slot < slotCount(); slot++) {
+                Node child = childAt(slot);
+                if (child != null && child.maxScore > maxScore) {
+                    maxScore = child.maxScore;
+                }
+            }
+            return maxScore;
+        }
+
+        /**
+         * Adds a child for a char which has none yet.
+         */
+        void addChild(char c, Node child) {
+            child.parent = this;
+            if (kind == SMALL) {
+                if (count < PACKED) {
+                    int slot = count;
+                    while (slot > 0 && smallChar(slot - 1) > c) {
+                        setSmall(slot, smallChar(slot - 1), childAt(slot - 1));
+                        slot--;
+                    }
+                    setSmall(slot, c, child);
+                    count++;
+                    return;
+                }
+                toSorted(SORTED_CAPACITY);
+            }
+
+            if (kind == SORTED && count >= DIRECT_THRESHOLD && span(c) <= DIRECT_SPAN) {
+                toDirect(c);
+            }
+
+            if (kind == DIRECT) {
+                int span = span(c);
+                if (span > DIRECT_SPAN) {
+                    toSorted(count * 2);
+                } else {
+                    if (c < base || c - base >= children.length) {
+                        int newBase = Math.min(base, c);
+                        Node[] grown = new Node[span];
+                        System.arraycopy(children, 0, grown, base - newBase, children.length);
+                        children = grown;
+                        base = newBase;
+                    }
+                    children[c - base] = child;
+                    count++;
+                    return;
+                }
+            }
+
+            int index = -Arrays.binarySearch(chars, 0, count, c) - 1;
+            if (count == chars.length) {
+                chars = Arrays.copyOf(chars, count * 2);
+                children = Arrays.copyOf(children, count * 2);
+            }
+            System.arraycopy(chars, index, chars, index + 1, count - index);
+            System.arraycopy(children, index, children, index + 1, count - index);
+            chars[index] = c;
+            children[index] = child;
+            count++;
+        }
+
+        void replaceChild(char c, Node child) {
+            child.parent = this;
+            switch (kind) {
+            case SMALL:
+                for (int i = 0; i < count; i++) {
+                    if (smallChar(i) == c) {
+                        setSmall(i, c, child);
+                        return;
+                    }
+                }
+                return;
+            case SORTED:
+                children[Arrays.binarySearch(chars, 0, count, c)] = child;
+                return;
+            default:
+                children[c - base] = child;
+            }
+        }
+
+        void removeChild(char c) {
+            switch (kind) {
+            case SMALL:
+                int slot = 0;
+                while (smallChar(slot) != c) {
+                    slot++;
+                }
+                for (; slot < count - 1; slot++) {
+                    setSmall(slot, smallChar(slot + 1), childAt(slot + 1));
+                }
+                setSmall(count - 1, (char) 0, null);
+                count--;
+                return;
+            case SORTED:
+                int index = Arrays.binarySearch(chars, 0, count, c);
+                System.arraycopy(chars, index + 1, chars, index, count - index - 1);
+                System.arraycopy(children, index + 1, children, index, count - index - 1);
+                children[--count] = null;
+                if (count < PACKED) {
+                    toSmall();
+                }
+                return;
+            default:
+                children[c - base] = null;
+                count--;
+                if (count < DIRECT_THRESHOLD - PACKED) {
+                    toSorted(SORTED_CAPACITY * 2);
+                }
+            }
+        }
+
+        private char smallChar(int slot) {
+            return (char) (smallChars >>> shift(slot));
+        }
+
+        private void setSmall(int slot, char c, Node child) {
+            smallChars = (smallChars & ~(0xFFFFL << shift(slot))) | ((long) c << shift(slot));
+            switch (slot) {
+            case 0:
+                child0 = child;
+                break;
+            case 1:
+                child1 = child;
+                break;
+            case 2:
+                child2 = child;
+                break;
+            default:
+                child3 = child;
+            }
+        }
+
+        /**
+         * Returns the number of chars from the smallest to the largest child char including the given one.
+         */
+        private int span(char c) {
+            int min;
+            int max;
+            if (kind == DIRECT) {
+                min = base;
+                max = base + children.length - 1;
+            } else {
+                min = chars[0];
+                max = chars[count - 1];
+            }
+            return Math.max(max, c) - Math.min(min, c) + 1;
+        }
+
+        private void toSorted(int capacity) {
+            char[] sortedChars = new char[Math.max(capacity, count)];
+            Node[] sortedChildren = new Node[sortedChars.length];
+            int index = 0;
+            for (int slot = 0; slot < slotCount(); slot++) {
+                Node child = childAt(slot);
+                if (child != null) {
+                    sortedChars[index] = kind == DIRECT ? (char) (base + slot) : smallChar(slot);
+                    sortedChildren[index++] = child;
+                }
+            }
+            if (kind == SMALL) {
+                smallChars = 0L;
+                child0 = child1 = child2 = child3 = null;
+            }
+            kind = SORTED;
+            chars = sortedChars;
+            children = sortedChildren;
+            base = 0;
+        }
+
+        private void toDirect(char c) {
+            int newBase = Math.min(chars[0], c);
+            Node[] direct = new Node[span(c)];
+            for (int i = 0; i < count; i++) {
+                direct[chars[i] - newBase] = children[i];
+            }
+            kind = DIRECT;
+            chars = null;
+            children = direct;
+            base = newBase;
+        }
+
+        private void toSmall() {
+            char[] sortedChars = chars;
+            Node[] sortedChildren = children;
+            kind = SMALL;
+            chars = null;
+            children = null;
+            for (int i = 0; i < count; i++) {
+                setSmall(i, sortedChars[i], sortedChildren[i]);
+            }
+        }
+
+        private static int shift(int index) {
+            return (PACKED - 1 - index) * Character.SIZE;
+        }
+    }
+
+    /**
+     * Iterates over the keys of a subtree depth first, a node's key before those of its children.
+     */
+    private static final class SuggestionIterator implements Iterator<String> {
+
+        private Node[] nodes = new Node[16];
+        private int[] slots = new int[16];
+        private int top = 0;
+        private String next;
+
+        private SuggestionIterator(Node subtree) {
+            if (subtree != null) {
+                push(subtree);
+                next = advance();
+            }
+        }
+
+        /**
+         * Starts after the given key. The stack is set up by descending along the key: the nodes on its path are
+         * pushed with their key and the children up to the key's char done, the node where the key branches off is
+         * pushed whole if its keys come after the key.
+         */
+        private SuggestionIterator(Node subtree, String after) {
+            // The root is the only node which can be without keys.
+            if (subtree == null || (subtree.key == null && subtree.count == 0)) {
+                return;
+            }
+
+            Node node = subtree;
+            int depth = depthOf(subtree);
+            int from = 0;
+            while (true) {
+                String sample = firstKeyOf(node);
+                int end = Math.min(depth, after.length());
+                int i = from;
+                while (i < end && sample.charAt(i) == after.charAt(i)) {
+                    i++;
+                }
+                if (i < end) {
+                    if (sample.charAt(i) > after.charAt(i)) {
+                        push(node);
+                    }
+                    break;
+                }
+                if (after.length() <= depth) {
+                    // The keys of the node are longer than the key or, if it ends at the node, the node's key is it.
+                    push(node);
+                    if (after.length() == depth) {
+                        slots[top - 1] = 0;
+                    }
+                    break;
+                }
+
+                char c = after.charAt(depth);
+                push(node);
+                int slot = 0;
+                while (slot < node.slotCount() && (node.childAt(slot) == null || node.slotChar(slot) <= c)) {
+                    slot++;
+                }
+                slots[top - 1] = slot;
+                Node child = node.child(c);
+                if (child == null) {
+                    break;
+                }
+                from = depth + 1;
+                depth = from + child.prefixLength;
+                node = child;
+            }
+            next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            String key = next;
+            next = advance();
+            return key;
+        }
+
+        private void push(Node node) {
+            if (top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                slots = Arrays.copyOf(slots, top * 2);
+            }
+            nodes[top] = node;
+            slots[top++] = -1;
+        }
+
+        private String advance() {
+            while (top > 0) {
+                Node node = nodes[top - 1];
+                int slot = slots[top - 1];
+                if (slot < 0) {
+                    slots[top - 1] = 0;
+                    if (node.key != null) {
+                        return node.key;
+                    }
+                    continue;
+                }
+
+                Node child = null;
+                while (slot < node.slotCount() && (child = node.childAt(slot)) == null) {
+                    slot++;
+                }
+                if (slot >= node.slotCount()) {
+                    nodes[--top] = null;
+                    continue;
+                }
+                slots[top - 1] = slot + 1;
+                push(child);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * An entry of the best-first search in {@link #getFuzzySuggestions(String, int, int)}, bounded by the edit
+     * distance its keys can at best get to. Candidates with the same bound come in the order of their first keys, so
+     * keys at the same distance are emitted in key order.
+     */
+    private static final class FuzzyCandidate implements Comparable<FuzzyCandidate> {
+
+        private final Node node;
+        private final boolean external;
+        private final int depth;
+        private final int[] row;
+        private final int best;
+        private final int bound;
+        private String firstKey;
+
+        private FuzzyCandidate(Node node, boolean external, int depth, int[] row, int best, int bound) {
+            this.node = node;
+            this.external = external;
+            this.depth = depth;
+            this.row = row;
+            this.best = best;
+            this.bound = bound;
+        }
+
+        @Override
+        public int compareTo(FuzzyCandidate other) {
+            if (bound != other.bound) {
+                return bound < other.bound ? -1 : 1;
+            }
+            int order = firstKey().compareTo(other.firstKey());
+            if (order != 0) {
+                return order;
+            }
+            // A node's key comes before the keys of its children.
+            return external == other.external ? 0 : external ? -1 : 1;
+        }
+
+        private String firstKey() {
+            if (firstKey == null) {
+                firstKey = external ? node.key : firstKeyOf(node);
+            }
+            return firstKey;
+        }
+    }
+
+    /**
+     * An entry of the best-first search in {@link #getTopSuggestions(String, int)}. External candidates are the key of
+     * their node, the others its subtree bounded by the cached max score.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        private final Node node;
+        private final boolean external;
+        private final long score;
+        private String firstKey;
+
+        private Candidate(Node node, boolean external, long score) {
+            this.node = node;
+            this.external = external;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (score != other.score) {
+                return score > other.score ? -1 : 1;
+            }
+            // Candidates cover disjoint ranges of keys, so their first keys put keys with the same score in order.
+            return firstKey().compareTo(other.firstKey());
+        }
+
+        private String firstKey() {
+            if (firstKey == null) {
+                firstKey = external ? node.key : firstKeyOf(node);
+            }
+            return firstKey;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.autocomplete.datatype;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.autocomplete.comparators.KeyComparator;
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * Read-only trie of strings in the compact layout shared by {@link FrozenPatriciaTrie} and
+ * {@link MappedPatriciaTrie}.
+ *
+ * Keys are kept in bit order in a single char pool. Internal node i discriminates key i from key i + 1, its bit
+ * index and children are stored in three parallel int tables. A child is either an internal node (>= 0) or a key
+ * (~keyIndex), so the keys below any node are a contiguous range of the pool.
+ *
+ * The binary file format written by {@link #writeTo(Path)} is big-endian:
+ *
+ * <pre>
+ * int    magic ('PTRI')
+ * int    version
+ * int    size, the number of keys
+ * int    length of the char pool
+ * int    root, from, to of the written trie
+ * int[]  bitIndex, left, right (size - 1 entries each)
+ * int[]  key offsets (size + 1 entries)
+ * char[] key pool
+ * </pre>
+ */
+public abstract class CompactPatriciaTrie {
+
+    static final int MAGIC = 0x50545249;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 7 * Integer.BYTES;
+    static final int EMPTY = Integer.MIN_VALUE;
+
+    private static final KeyComparator<String> KEY_COMP = StringKeyComparator.CHAR;
+
+    private final int root;
+    private final int from;
+    private final int to;
+
+    CompactPatriciaTrie(int root, int from, int to) {
+        this.root = root;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Number of keys stored in the tables, including those outside of this view.
+     */
+    abstract int keyCount();
+
+    abstract int bitIndex(int node);
+
+    abstract int left(int node);
+
+    abstract int right(int node);
+
+    abstract int keyOffset(int index);
+
+    abstract char poolChar(int offset);
+
+    abstract CompactPatriciaTrie view(int root, int from, int to);
+
+    public int size() {
+        return to - from;
+    }
+
+    public String firstKey() {
+        return size() == 0 ? null : keyAt(from);
+    }
+
+    public List<String> getSuggestions(String prefix, int numOfSuggestions) {
+        ArrayList<String> suggestions = new ArrayList<>();
+        CompactPatriciaTrie subtree = subtree(prefix);
+        if (subtree != null) {
+            int end = Math.min(subtree.to, subtree.from + Math.max(numOfSuggestions, 0));
+            for (int i = subtree.from; i < end; i++) {
+                suggestions.add(keyAt(i));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns a view of all keys with the given prefix, or null if there are none. The view shares the storage of
+     * this trie.
+     */
+    public CompactPatriciaTrie subtree(String prefix) {
+        if (root == EMPTY) {
+            return null;
+        }
+
+        int lengthInBits = KEY_COMP.lengthInBits(prefix);
+        int current = root;
+        while (current >= 0 && bitIndex(current) < lengthInBits) {
+            if (!KEY_COMP.isBitSet(prefix, bitIndex(current))) {
+                current = left(current);
+            } else {
+                current = right(current);
+            }
+        }
+
+        int first = firstKeyIndex(current);
+        if (!hasPrefix(first, prefix)) {
+            return null;
+        }
+
+        return view(current, first, lastKeyIndex(current) + 1);
+    }
+
+    /**
+     * Writes this trie in the binary format described above, so that it can be loaded with
+     * {@link MappedPatriciaTrie#open(Path)}.
+     */
+    public void writeTo(Path file) throws IOException {
+        int keyCount = keyCount();
+        int nodes = Math.max(keyCount - 1, 0);
+        int poolLength = keyOffset(keyCount);
+
+        OutputStream out = null;
+        try {
+            out = Files.newOutputStream(file);
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(keyCount);
+            data.writeInt(poolLength);
+            data.writeInt(root);
+            data.writeInt(from);
+            data.writeInt(to);
+            for (int i = 0; i < nodes; i++) {
+                data.writeInt(bitIndex(i));
+            }
+            for (int i = 0; i < nodes; i++) {
+                data.writeInt(left(i));
+            }
+            for (int i = 0; i < nodes; i++) {
+                data.writeInt(right(i));
+            }
+            for (int i = 0; i <= keyCount; i++) {
+                data.writeInt(keyOffset(i));
+            }
+            for (int i = 0; i < poolLength; i++) {
+                data.writeChar(poolChar(i));
+            }
+            data.flush();
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    int root() {
+        return root;
+    }
+
+    int from() {
+        return from;
+    }
+
+    int to() {
+        return to;
+    }
+
+    private int firstKeyIndex(int node) {
+        while (node >= 0) {
+            node = left(node);
+        }
+        return ~node;
+    }
+
+    private int lastKeyIndex(int node) {
+        while (node >= 0) {
+            node = right(node);
+        }
+        return ~node;
+    }
+
+    String keyAt(int index) {
+        int offset = keyOffset(index);
+        char[] chars = new char[keyOffset(index + 1) - offset];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = poolChar(offset + i);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns the char of the key at the given position, keys are padded with zeros.
+     */
+    char charAt(int index, int position) {
+        int offset = keyOffset(index) + position;
+        return offset < keyOffset(index + 1) ? poolChar(offset) : 0;
+    }
+
+    private boolean hasPrefix(int index, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (charAt(index, i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,111 @@
+package com.autocomplete.datatype;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Completion state of one user typing a prefix into a {@link ConcurrentPatriciaTrie} of strings, one key at a time.
+ *
+ * The session keeps the lookup of every prefix typed so far. {@link #append(char)} continues the descent where the
+ * lookup of the current prefix stopped instead of starting at the root again, and {@link #backspace()} drops the
+ * last lookup.
+ *
+ * The trie may be written by other threads while the session is used. All lookups of a session are made in one
+ * snapshot of the trie, and before answering the session checks that no write was applied since. If one was, it
+ * looks its prefixes up again in the current snapshot, so every answer reflects the trie as of the call. The session
+ * itself belongs to one user and is not thread safe.
+ */
+public class CompletionSession {
+
+    private final ConcurrentPatriciaTrie<String> trie;
+    private final List<ConcurrentPatriciaTrie.Lookup<String>> lookups = new ArrayList<>();
+    private String prefix = "";
+
+    public CompletionSession(ConcurrentPatriciaTrie<String> trie) {
+        this.trie = trie;
+        clear();
+    }
+
+    public String prefix() {
+        return prefix;
+    }
+
+    public void append(char ch) {
+        prefix = prefix + ch;
+        if (isValid()) {
+            lookups.add(trie.lookup(lookups.get(lookups.size() - 1), prefix));
+        }
+    }
+
+    public void append(CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            append(chars.charAt(i));
+        }
+    }
+
+    /**
+     * Removes the last char of the prefix, returns false if the prefix is empty.
+     */
+    public boolean backspace() {
+        if (prefix.isEmpty()) {
+            return false;
+        }
+
+        prefix = prefix.substring(0, prefix.length() - 1);
+        if (isValid()) {
+            lookups.remove(lookups.size() - 1);
+        }
+        return true;
+    }
+
+    public void clear() {
+        prefix = "";
+        lookups.clear();
+        lookups.add(trie.lookup(null, prefix));
+    }
+
+    /**
+     * Returns the first numOfSuggestions keys with the current prefix, see
+     * {@link ConcurrentPatriciaTrie#getSuggestions(Object, int)}.
+     */
+    public List<String> getSuggestions(int numOfSuggestions) {
+        return trie.getSuggestions(lookup(), numOfSuggestions);
+    }
+
+    /**
+     * Returns up to k keys with the current prefix, highest score first, see
+     * {@link ConcurrentPatriciaTrie#getTopSuggestions(Object, int)}.
+     */
+    public List<String> getTopSuggestions(int k) {
+        return trie.getTopSuggestions(lookup(), k);
+    }
+
+    /**
+     * Returns a lazy iterator over the keys with the current prefix in bit order. It iterates over the trie as of
+     * this call, writes applied later are not seen.
+     */
+    public Iterator<String> suggestionIterator() {
+        return trie.suggestionIterator(lookup());
+    }
+
+    private ConcurrentPatriciaTrie.Lookup<String> lookup() {
+        if (!isValid()) {
+            // Look up every prefix again in the current snapshot, each continuing from the one before.
+            lookups.clear();
+            lookups.add(trie.lookup(null, ""));
+            for (int length = 1; length <= prefix.length(); length++) {
+                lookups.add(trie.lookup(lookups.get(length - 1), prefix.substring(0, length)));
+            }
+        }
+        return lookups.get(lookups.size() - 1);
+    }
+
+    /**
+     * Returns true if the lookups are in the current snapshot of the trie, they are only kept up with the prefix
+     * then.
+     */
+    private boolean isValid() {
+        return trie.isCurrent(lookups.get(0));
+    }
+}
@@ -0,0 +1,508 @@
+package com.autocomplete.datatype;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.autocomplete.comparators.KeyComparator;
+
+/**
+ * Patricia trie which can be read from any number of threads while it is being written.
+ *
+ * The trie is a persistent tree without parent, predecessor or uplink pointers. Writers never modify a published
+ * node, they copy the path from the root to the changed leaf and publish the new root through an
+ * {@link AtomicReference}. Readers pick up one root and work on that snapshot without taking any lock, so they can
+ * never see a half linked node.
+ *
+ * Writes are collected in a {@link Batch} and applied under a single writer lock. All changes of a batch become
+ * visible at once, and nodes copied within the same batch are updated in place instead of being copied again.
+ */
+public class ConcurrentPatriciaTrie<K> {
+
+    private final KeyComparator<K> keyComp;
+    private final AtomicReference<Snapshot<K>> snapshot;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Incremented for every batch, only accessed while holding the write lock.
+     */
+    private long generation = 0;
+
+    public ConcurrentPatriciaTrie(KeyComparator<K> keyComp) {
+        this.keyComp = keyComp;
+        this.snapshot = new AtomicReference<Snapshot<K>>(new Snapshot<K>(null, 0));
+    }
+
+    public int size() {
+        return snapshot.get().size;
+    }
+
+    public void put(K key) {
+        batch().put(key).apply();
+    }
+
+    public void put(K key, long score) {
+        batch().put(key, score).apply();
+    }
+
+    public void remove(K key) {
+        batch().remove(key).apply();
+    }
+
+    /**
+     * Returns a new batch of writes, nothing is visible to readers until it is applied.
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * Returns the score of the given key, or null if the key is not in the trie.
+     */
+    public Long getScore(K key) {
+        Node<K> leaf = nearestLeaf(snapshot.get().root, key);
+        if (leaf == null || keyComp.compare(key, leaf.key) != 0) {
+            return null;
+        }
+        return leaf.score;
+    }
+
+    public List<K> getSuggestions(K prefix, int numOfSuggestions) {
+        return getSuggestions(lookup(null, prefix), numOfSuggestions);
+    }
+
+    List<K> getSuggestions(Lookup<K> lookup, int numOfSuggestions) {
+        ArrayList<K> suggestions = new ArrayList<>();
+        Iterator<K> iterator = suggestionIterator(lookup);
+        while (suggestions.size() < numOfSuggestions && iterator.hasNext()) {
+            suggestions.add(iterator.next());
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns a lazy iterator over the keys of the lookup's subtree in bit order. It stays on the snapshot of the
+     * lookup, writes applied later are not seen.
+     */
+    Iterator<K> suggestionIterator(Lookup<K> lookup) {
+        return new SuggestionIterator<K>(lookup.subtree);
+    }
+
+    /**
+     * Returns up to k keys with the given prefix, highest score first. See
+     * {@link PatriciaTrie#getTopSuggestions(Object, int)}.
+     */
+    public List<K> getTopSuggestions(K prefix, int k) {
+        return getTopSuggestions(lookup(null, prefix), k);
+    }
+
+    List<K> getTopSuggestions(Lookup<K> lookup, int k) {
+        ArrayList<K> suggestions = new ArrayList<>();
+        Node<K> subtree = lookup.subtree;
+        if (subtree == null || k <= 0) {
+            return suggestions;
+        }
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(subtree));
+        while (suggestions.size() < k && !queue.isEmpty()) {
+            Node<K> node = queue.poll().node;
+            if (node.isLeaf()) {
+                suggestions.add(node.key);
+            } else {
+                queue.add(new Candidate(node.left));
+                queue.add(new Candidate(node.right));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Looks up the subtree of the prefix in the current snapshot. If the lookup of a shorter prefix of it is given,
+     * the descent continues from that one's subtree, in that one's snapshot.
+     */
+    Lookup<K> lookup(Lookup<K> from, K prefix) {
+        if (from == null) {
+            Node<K> root = snapshot.get().root;
+            return new Lookup<K>(root, subtree(root, prefix));
+        }
+        // No key has the shorter prefix, so none has this one.
+        return new Lookup<K>(from.root, from.subtree == null ? null : subtree(from.subtree, prefix));
+    }
+
+    /**
+     * Returns true if no write was applied since the snapshot of the lookup was taken.
+     */
+    boolean isCurrent(Lookup<K> lookup) {
+        return lookup.root == snapshot.get().root;
+    }
+
+    /**
+     * Returns the highest node below the given one whose keys all start with the given prefix, or null if there are
+     * none. Any node whose keys share a shorter prefix of it can be given instead of the root.
+     */
+    private Node<K> subtree(Node<K> root, K prefix) {
+        if (root == null) {
+            return null;
+        }
+
+        int lengthInBits = keyComp.lengthInBits(prefix);
+        Node<K> current = root;
+        while (!current.isLeaf() && current.bitIndex < lengthInBits) {
+            current = keyComp.isBitSet(prefix, current.bitIndex) ? current.right : current.left;
+        }
+
+        // All keys below the node share the bits before its bit index, any of them can be checked.
+        Node<K> leaf = current;
+        while (!leaf.isLeaf()) {
+            leaf = leaf.left;
+        }
+
+        int bitIndex = keyComp.bitIndex(prefix, leaf.key);
+        if (TrieUtil.isValidBitIndex(bitIndex) && bitIndex < lengthInBits) {
+            return null;
+        }
+        return current;
+    }
+
+    private Node<K> nearestLeaf(Node<K> root, K key) {
+        Node<K> current = root;
+        while (current != null && !current.isLeaf()) {
+            current = keyComp.isBitSet(key, current.bitIndex) ? current.right : current.left;
+        }
+        return current;
+    }
+
+    /**
+     * Applies the given writes and publishes the result as one snapshot.
+     */
+    private void apply(List<Write<K>> writes) {
+        writeLock.lock();
+        try {
+            long batchGeneration = ++generation;
+            Snapshot<K> current = snapshot.get();
+            Node<K> root = current.root;
+            int size = current.size;
+
+            for (Write<K> write : writes) {
+                K key = write.key;
+                Node<K> nearest = nearestLeaf(root, key);
+                if (write.remove) {
+                    if (nearest != null && keyComp.compare(key, nearest.key) == 0) {
+                        root = delete(root, key, batchGeneration);
+                        size--;
+                    }
+                    continue;
+                }
+
+                if (nearest == null) {
+                    root = new Node<K>(key, write.score);
+                    size++;
+                    continue;
+                }
+
+                int bitIndex = keyComp.bitIndex(key, nearest.key);
+                if (TrieUtil.isNullBitKey(bitIndex)
+                        || (TrieUtil.isEqualBitKey(bitIndex) && keyComp.compare(key, nearest.key) == 0)) {
+                    long score = write.keepScore ? nearest.score : write.score;
+                    root = insert(root, new Node<K>(key, score), -1, batchGeneration);
+                } else if (TrieUtil.isValidBitIndex(bitIndex)) {
+                    root = insert(root, new Node<K>(key, write.score), bitIndex, batchGeneration);
+                    size++;
+                }
+            }
+
+            snapshot.set(new Snapshot<K>(root, size));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Inserts the leaf, copying every published node on its path, and returns the new root. The leaf is added
+     * with a branch on the given bit index, or replaces the leaf of an equal key if the bit index is negative.
+     */
+    private Node<K> insert(Node<K> root, Node<K> leaf, int bitIndex, long batchGeneration) {
+        K key = leaf.key;
+        boolean replace = bitIndex < 0;
+
+        List<Node<K>> path = new ArrayList<>();
+        Node<K> current = root;
+        while (!current.isLeaf() && (replace || current.bitIndex < bitIndex)) {
+            path.add(current);
+            current = keyComp.isBitSet(key, current.bitIndex) ? current.right : current.left;
+        }
+
+        Node<K> replacement = leaf;
+        if (!replace) {
+            Node<K> branch = new Node<K>(bitIndex, batchGeneration);
+            if (keyComp.isBitSet(key, bitIndex)) {
+                branch.left = current;
+                branch.right = leaf;
+            } else {
+                branch.left = leaf;
+                branch.right = current;
+            }
+            branch.maxScore = Math.max(branch.left.maxScore, branch.right.maxScore);
+            replacement = branch;
+        }
+
+        return copyPath(path, key, replacement, batchGeneration);
+    }
+
+    /**
+     * Removes the leaf of the given key, which has to be in the trie, and returns the new root. The branch above the
+     * leaf is replaced by the leaf's sibling.
+     */
+    private Node<K> delete(Node<K> root, K key, long batchGeneration) {
+        List<Node<K>> path = new ArrayList<>();
+        Node<K> current = root;
+        while (!current.isLeaf()) {
+            path.add(current);
+            current = keyComp.isBitSet(key, current.bitIndex) ? current.right : current.left;
+        }
+
+        if (path.isEmpty()) {
+            return null;
+        }
+        Node<K> branch = path.remove(path.size() - 1);
+        Node<K> sibling = keyComp.isBitSet(key, branch.bitIndex) ? branch.left : branch.right;
+        return copyPath(path, key, sibling, batchGeneration);
+    }
+
+    /**
+     * Replaces the end of the path to the given key, copying the path bottom up, and returns the new root. Nodes
+     * created by this batch are not published yet and can be changed in place.
+     */
+    private Node<K> copyPath(List<Node<K>> path, K key, Node<K> replacement, long batchGeneration) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node<K> parent = path.get(i);
+            if (parent.generation != batchGeneration) {
+                parent = parent.copy(batchGeneration);
+            }
+            if (keyComp.isBitSet(key, parent.bitIndex)) {
+                parent.right = replacement;
+            } else {
+                parent.left = replacement;
+            }
+            parent.maxScore = Math.max(parent.left.maxScore, parent.right.maxScore);
+            replacement = parent;
+        }
+        return replacement;
+    }
+
+    /**
+     * A set of writes which is applied atomically.
+     */
+    public class Batch {
+
+        private final List<Write<K>> writes = new ArrayList<>();
+
+        private Batch() {
+        }
+
+        /**
+         * Adds the key, the score of an already existing key is kept.
+         */
+        public Batch put(K key) {
+            writes.add(new Write<K>(TrieUtil.notNull(key, "Key cannot be null"), 0L, true));
+            return this;
+        }
+
+        /**
+         * Adds the key, or updates its score if it already exists.
+         */
+        public Batch put(K key, long score) {
+            writes.add(new Write<K>(TrieUtil.notNull(key, "Key cannot be null"), score, false));
+            return this;
+        }
+
+        /**
+         * Removes the key if it exists.
+         */
+        public Batch remove(K key) {
+            writes.add(new Write<K>(TrieUtil.notNull(key, "Key cannot be null")));
+            return this;
+        }
+
+        public int size() {
+            return writes.size();
+        }
+
+        /**
+         * Applies all writes of this batch and publishes them to readers at once.
+         */
+        public void apply() {
+            if (!writes.isEmpty()) {
+                ConcurrentPatriciaTrie.this.apply(writes);
+                writes.clear();
+            }
+        }
+    }
+
+    private static final class Write<K> {
+
+        private final K key;
+        private final long score;
+        private final boolean keepScore;
+        private final boolean remove;
+
+        private Write(K key, long score, boolean keepScore) {
+            this.key = key;
+            this.score = score;
+            this.keepScore = keepScore;
+            this.remove = false;
+        }
+
+        private Write(K key) {
+            this.key = key;
+            this.score = 0L;
+            this.keepScore = false;
+            this.remove = true;
+        }
+    }
+
+    /**
+     * The subtree of a prefix in one snapshot, null if no key has the prefix. A longer prefix starting with the same
+     * bits can continue the descent from here.
+     */
+    static final class Lookup<K> {
+
+        private final Node<K> root;
+        private final Node<K> subtree;
+
+        private Lookup(Node<K> root, Node<K> subtree) {
+            this.root = root;
+            this.subtree = subtree;
+        }
+    }
+
+    private static final class Snapshot<K> {
+
+        private final Node<K> root;
+        private final int size;
+
+        private Snapshot(Node<K> root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+    }
+
+    /**
+     * A node is either a leaf holding a key, or a branch on a bit index. Nodes are only modified by the batch that
+     * created them, before they are published.
+     */
+    private static final class Node<K> {
+
+        private K key;
+        private long score;
+        private int bitIndex;
+        private Node<K> left;
+        private Node<K> right;
+        private long maxScore;
+        private long generation;
+
+        private Node(K key, long score) {
+            this.key = key;
+            this.score = score;
+            this.maxScore = score;
+        }
+
+        private Node(int bitIndex, long generation) {
+            this.bitIndex = bitIndex;
+            this.generation = generation;
+        }
+
+        private boolean isLeaf() {
+            return key != null;
+        }
+
+        private Node<K> copy(long generation) {
+            Node<K> copy = new Node<K>(bitIndex, generation);
+            copy.left = left;
+            copy.right = right;
+            copy.maxScore = maxScore;
+            return copy;
+        }
+    }
+
+    /**
+     * Iterates over the keys of a subtree in bit order, the right children still to visit on a stack.
+     */
+    private static final class SuggestionIterator<K> implements Iterator<K> {
+
+        private final Deque<Node<K>> stack = new ArrayDeque<>();
+
+        private SuggestionIterator(Node<K> subtree) {
+            if (subtree != null) {
+                stack.push(subtree);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public K next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+
+            Node<K> current = stack.pop();
+            while (!current.isLeaf()) {
+                stack.push(current.right);
+                current = current.left;
+            }
+            return current.key;
+        }
+    }
+
+    /**
+     * An entry of the best-first search in {@link #getTopSuggestions(Object, int)}, a key or a subtree bounded by its
+     * max score. Candidates with the same score are taken in the bit order of their first keys.
+     */
+    private final class Candidate implements Comparable<Candidate> {
+
+        private final Node<K> node;
+        private final long score;
+        private K firstKey;
+
+        private Candidate(Node<K> node) {
+            this.node = node;
+            this.score = node.maxScore;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (score != other.score) {
+                return score > other.score ? -1 : 1;
+            }
+            K key = firstKey();
+            K otherKey = other.firstKey();
+            int bitIndex = keyComp.bitIndex(key, otherKey);
+            if (!TrieUtil.isValidBitIndex(bitIndex)) {
+                return 0;
+            }
+            return keyComp.isBitSet(key, bitIndex) ? 1 : -1;
+        }
+
+        private K firstKey() {
+            if (firstKey == null) {
+                Node<K> current = node;
+                while (!current.isLeaf()) {
+                    current = current.left;
+                }
+                firstKey = current.key;
+            }
+            return firstKey;
+        }
+    }
+}
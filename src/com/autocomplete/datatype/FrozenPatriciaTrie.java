@@ -0,0 +1,129 @@
+package com.autocomplete.datatype;
+
+import java.util.List;
+
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * Immutable, array backed snapshot of a {@link PatriciaTrie} of strings, created by {@link PatriciaTrie#freeze()}.
+ * See {@link CompactPatriciaTrie} for the layout.
+ *
+ * A pointer trie costs a TrieNode (~56 bytes with compressed oops), a String (24 bytes) and the key's array header
+ * (16 bytes) per key on top of the characters themselves. The snapshot needs 16 bytes per key (three node ints and
+ * a key offset) plus the characters, and only a handful of objects in total.
+ */
+public class FrozenPatriciaTrie extends CompactPatriciaTrie {
+
+    private final int[] bitIndex;
+    private final int[] left;
+    private final int[] right;
+    private final int[] keyOffsets;
+    private final char[] keys;
+
+    /**
+     * Creates a snapshot of the given keys, which have to be distinct and in bit order.
+     */
+    static FrozenPatriciaTrie of(List<String> sortedKeys) {
+        int size = sortedKeys.size();
+        int nodes = Math.max(size - 1, 0);
+
+        int[] keyOffsets = new int[size + 1];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            keyOffsets[i] = length;
+            length += sortedKeys.get(i).length();
+        }
+        keyOffsets[size] = length;
+
+        char[] keys = new char[length];
+        for (int i = 0; i < size; i++) {
+            String key = sortedKeys.get(i);
+            key.getChars(0, key.length(), keys, keyOffsets[i]);
+        }
+
+        // Build the tree in one pass, keeping the nodes of the right spine on a stack.
+        int[] bitIndex = new int[nodes];
+        int[] left = new int[nodes];
+        int[] right = new int[nodes];
+        int[] stack = new int[nodes];
+        int top = 0;
+        for (int i = 0; i < nodes; i++) {
+            bitIndex[i] = bitIndexOfKeys(keys, keyOffsets, i, i + 1);
+
+            int last = ~i;
+            while (top > 0 && bitIndex[stack[top - 1]] > bitIndex[i]) {
+                last = stack[--top];
+            }
+
+            left[i] = last;
+            right[i] = ~(i + 1);
+            if (top > 0) {
+                right[stack[top - 1]] = i;
+            }
+            stack[top++] = i;
+        }
+
+        int root = size == 0 ? EMPTY : (nodes == 0 ? ~0 : stack[0]);
+        return new FrozenPatriciaTrie(bitIndex, left, right, keyOffsets, keys, root, 0, size);
+    }
+
+    private FrozenPatriciaTrie(int[] bitIndex, int[] left, int[] right, int[] keyOffsets, char[] keys, int root,
+            int from, int to) {
+        super(root, from, to);
+        this.bitIndex = bitIndex;
+        this.left = left;
+        this.right = right;
+        this.keyOffsets = keyOffsets;
+        this.keys = keys;
+    }
+
+    @Override
+    public FrozenPatriciaTrie subtree(String prefix) {
+        return (FrozenPatriciaTrie) super.subtree(prefix);
+    }
+
+    @Override
+    int keyCount() {
+        return keyOffsets.length - 1;
+    }
+
+    @Override
+    int bitIndex(int node) {
+        return bitIndex[node];
+    }
+
+    @Override
+    int left(int node) {
+        return left[node];
+    }
+
+    @Override
+    int right(int node) {
+        return right[node];
+    }
+
+    @Override
+    int keyOffset(int index) {
+        return keyOffsets[index];
+    }
+
+    @Override
+    char poolChar(int offset) {
+        return keys[offset];
+    }
+
+    @Override
+    FrozenPatriciaTrie view(int root, int from, int to) {
+        return new FrozenPatriciaTrie(bitIndex, left, right, keyOffsets, keys, root, from, to);
+    }
+
+    @Override
+    String keyAt(int index) {
+        return new String(keys, keyOffsets[index], keyOffsets[index + 1] - keyOffsets[index]);
+    }
+
+    private static int bitIndexOfKeys(char[] keys, int[] keyOffsets, int index, int otherIndex) {
+        return StringKeyComparator.bitIndex(keys, keyOffsets[index], keyOffsets[index + 1], keys,
+                keyOffsets[otherIndex], keyOffsets[otherIndex + 1]);
+    }
+}
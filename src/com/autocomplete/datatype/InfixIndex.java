@@ -0,0 +1,229 @@
+package com.autocomplete.datatype;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+
+import com.autocomplete.comparators.NormalizingKeyComparator;
+
+/**
+ * Secondary index for completing from the start of any word of a key, so that "york" finds "New York". Next to the
+ * primary trie of strings, it keeps a trie of the key suffixes which start at a word, each pointing back to its key.
+ * Suffixes are a key and an offset, their chars are not copied. They are compared case and accent folded as with
+ * {@link NormalizingKeyComparator}.
+ *
+ * Words are runs of chars between separators. Memory is bounded by the tokenization: words shorter than
+ * minWordLength are not indexed, and only the first maxWordsPerKey words of a key are. Every indexed word costs a
+ * trie node and a small suffix object.
+ *
+ * Keys have to be added and removed through the index to keep both tries in sync.
+ */
+public class InfixIndex {
+
+    /**
+     * Separates words at every char which is neither a letter nor a digit.
+     */
+    public static final IntPredicate NOT_LETTER_OR_DIGIT = new IntPredicate() {
+        @Override
+        public boolean test(int c) {
+            return !Character.isLetterOrDigit(c);
+        }
+    };
+
+    private final PatriciaTrie<String> primary;
+    private final PatriciaMap<Suffix, Object[]> suffixes = new PatriciaMap<>(
+            NormalizingKeyComparator.<Suffix> forCharSequences());
+    private final IntPredicate separator;
+    private final int minWordLength;
+    private final int maxWordsPerKey;
+
+    /**
+     * Indexes every word of the keys of the given trie, see {@link #InfixIndex(PatriciaTrie, IntPredicate, int, int)}.
+     */
+    public InfixIndex(PatriciaTrie<String> primary) {
+        this(primary, NOT_LETTER_OR_DIGIT, 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Indexes the words of the keys already in the given trie, as split by the separator. Only words of at least
+     * minWordLength chars are indexed, and of these only the first maxWordsPerKey of a key.
+     */
+    public InfixIndex(PatriciaTrie<String> primary, IntPredicate separator, int minWordLength, int maxWordsPerKey) {
+        if (minWordLength < 1 || maxWordsPerKey < 1) {
+            throw new IllegalArgumentException("Word length and words per key must be positive");
+        }
+        this.primary = primary;
+        this.separator = separator;
+        this.minWordLength = minWordLength;
+        this.maxWordsPerKey = maxWordsPerKey;
+
+        Iterator<String> keys = primary.suggestionIterator("");
+        while (keys.hasNext()) {
+            index(keys.next());
+        }
+    }
+
+    public PatriciaTrie<String> getPrimary() {
+        return primary;
+    }
+
+    /**
+     * Number of indexed suffixes with distinct text.
+     */
+    public int suffixCount() {
+        return suffixes.size();
+    }
+
+    public void put(String key) {
+        if (primary.getScore(key) == null) {
+            primary.put(key);
+            index(key);
+        }
+    }
+
+    public void put(String key, long score) {
+        put(key);
+        primary.put(key, score);
+    }
+
+    public boolean remove(String key) {
+        if (!primary.remove(key)) {
+            return false;
+        }
+
+        int[] starts = wordStarts(key);
+        for (int start : starts) {
+            unindex(new Suffix(key, start));
+        }
+        return true;
+    }
+
+    /**
+     * Returns up to numOfSuggestions keys with a word starting with the given prefix, case and accent insensitively.
+     * Keys are in the order of their first matching suffix and appear once, however many of their words match.
+     */
+    public List<String> getSuggestions(String prefix, int numOfSuggestions) {
+        Set<String> suggestions = new LinkedHashSet<>();
+        Iterator<TrieNode<Suffix>> nodes = suffixes.suggestionNodeIterator(new Suffix(prefix, 0));
+        while (suggestions.size() < numOfSuggestions && nodes.hasNext()) {
+            for (Suffix suffix : NodeKeys.of((MapNode<Suffix>) nodes.next())) {
+                if (suggestions.size() >= numOfSuggestions) {
+                    break;
+                }
+                suggestions.add(suffix.key);
+            }
+        }
+        return new ArrayList<>(suggestions);
+    }
+
+    private void index(String key) {
+        for (int start : wordStarts(key)) {
+            Suffix suffix = new Suffix(key, start);
+            MapNode<Suffix> node = suffixes.getNode(suffix);
+            if (node == null) {
+                suffixes.put(suffix);
+            } else {
+                // Another key ends with the same text.
+                NodeKeys.add(node, suffix);
+            }
+        }
+    }
+
+    private void unindex(Suffix suffix) {
+        MapNode<Suffix> node = suffixes.getNode(suffix);
+        if (node == null) {
+            return;
+        }
+
+        int index = NodeKeys.indexOf(node, suffix);
+        if (index < 0) {
+            return;
+        }
+        if (NodeKeys.count(node) == 1) {
+            suffixes.remove(suffix);
+        } else {
+            NodeKeys.remove(node, index);
+        }
+    }
+
+    /**
+     * Returns the offsets of the words of the key which are indexed.
+     */
+    private int[] wordStarts(String key) {
+        int[] starts = new int[Math.min(key.length(), 8)];
+        int count = 0;
+        int i = 0;
+        while (i < key.length() && count < maxWordsPerKey) {
+            while (i < key.length() && separator.test(key.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < key.length() && !separator.test(key.charAt(i))) {
+                i++;
+            }
+            if (i - start >= minWordLength) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                }
+                starts[count++] = start;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * The chars of a key from the given offset on. Suffixes of different keys are different, even if their text is
+     * the same.
+     */
+    static final class Suffix implements CharSequence {
+
+        private final String key;
+        private final int offset;
+
+        Suffix(String key, int offset) {
+            this.key = key;
+            this.offset = offset;
+        }
+
+        @Override
+        public int length() {
+            return key.length() - offset;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return key.charAt(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return key.subSequence(offset + start, offset + end);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            } else if (!(o instanceof Suffix)) {
+                return false;
+            }
+
+            Suffix other = (Suffix) o;
+            return offset == other.offset && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() * 31 + offset;
+        }
+
+        @Override
+        public String toString() {
+            return key.substring(offset);
+        }
+    }
+}
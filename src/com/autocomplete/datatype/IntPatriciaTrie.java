@@ -0,0 +1,127 @@
+package com.autocomplete.datatype;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of int keys in a {@link PrimitivePatriciaTrie}, such as IPv4 addresses. Keys are ordered as unsigned numbers,
+ * and a prefix is given as a key and the number of its leading bits, like a CIDR block.
+ */
+public class IntPatriciaTrie extends PrimitivePatriciaTrie {
+
+    private int[] keys = new int[16];
+
+    public IntPatriciaTrie() {
+        super(Integer.SIZE);
+    }
+
+    /**
+     * Adds the key, returns false if it was already in the trie.
+     */
+    public boolean add(int key) {
+        return insert(toLong(key));
+    }
+
+    /**
+     * Removes the key, returns false if it wasn't in the trie.
+     */
+    public boolean remove(int key) {
+        return delete(toLong(key));
+    }
+
+    public boolean contains(int key) {
+        return containsKey(toLong(key));
+    }
+
+    /**
+     * Returns true if any key starts with the first bits of the prefix.
+     */
+    public boolean containsPrefix(int prefix, int bits) {
+        return subtree(toLong(prefix), bits) != NONE;
+    }
+
+    /**
+     * Returns the number of keys which start with the first bits of the prefix.
+     */
+    public int countPrefix(int prefix, int bits) {
+        return count(subtree(toLong(prefix), bits));
+    }
+
+    /**
+     * Passes all keys to the action in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        forEach(root(), action);
+    }
+
+    /**
+     * Passes the keys which start with the first bits of the prefix to the action in ascending order.
+     */
+    public void forEachWithPrefix(int prefix, int bits, IntConsumer action) {
+        forEach(subtree(toLong(prefix), bits), action);
+    }
+
+    /**
+     * Returns a cursor over all keys, which can be moved to another prefix with {@link Cursor#seek(int, int)}.
+     */
+    public Cursor cursor() {
+        Cursor cursor = new Cursor();
+        cursor.reset(root());
+        return cursor;
+    }
+
+    @Override
+    long keyAt(int slot) {
+        return toLong(keys[slot]);
+    }
+
+    @Override
+    void setKeyAt(int slot, long key) {
+        keys[slot] = (int) (key >>> Integer.SIZE);
+    }
+
+    @Override
+    void ensureKeyCapacity(int capacity) {
+        if (capacity > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(capacity, keys.length * 2));
+        }
+    }
+
+    private void forEach(int child, IntConsumer action) {
+        if (child == NONE) {
+            return;
+        } else if (child < 0) {
+            action.accept(keys[~child]);
+            return;
+        }
+        forEach(left(child), action);
+        forEach(right(child), action);
+    }
+
+    private static long toLong(int key) {
+        return (long) key << Integer.SIZE;
+    }
+
+    /**
+     * Iterator over keys in ascending order. The trie must not be modified while it is used.
+     */
+    public class Cursor extends SlotCursor implements PrimitiveIterator.OfInt {
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves the cursor to the first key which starts with the first bits of the prefix.
+         */
+        public Cursor seek(int prefix, int bits) {
+            reset(subtree(toLong(prefix), bits));
+            return this;
+        }
+
+        @Override
+        public int nextInt() {
+            return keys[nextSlot()];
+        }
+    }
+}
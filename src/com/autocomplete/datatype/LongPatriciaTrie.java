@@ -0,0 +1,124 @@
+package com.autocomplete.datatype;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of long keys in a {@link PrimitivePatriciaTrie}, for numeric ids without boxing them or converting them to
+ * strings. Keys are ordered as unsigned numbers, and a prefix is given as a key and the number of its leading bits,
+ * like a CIDR block.
+ */
+public class LongPatriciaTrie extends PrimitivePatriciaTrie {
+
+    private long[] keys = new long[16];
+
+    public LongPatriciaTrie() {
+        super(Long.SIZE);
+    }
+
+    /**
+     * Adds the key, returns false if it was already in the trie.
+     */
+    public boolean add(long key) {
+        return insert(key);
+    }
+
+    /**
+     * Removes the key, returns false if it wasn't in the trie.
+     */
+    public boolean remove(long key) {
+        return delete(key);
+    }
+
+    public boolean contains(long key) {
+        return containsKey(key);
+    }
+
+    /**
+     * Returns true if any key starts with the first bits of the prefix.
+     */
+    public boolean containsPrefix(long prefix, int bits) {
+        return subtree(prefix, bits) != NONE;
+    }
+
+    /**
+     * Returns the number of keys which start with the first bits of the prefix.
+     */
+    public int countPrefix(long prefix, int bits) {
+        return count(subtree(prefix, bits));
+    }
+
+    /**
+     * Passes all keys to the action in ascending order.
+     */
+    public void forEach(LongConsumer action) {
+        forEach(root(), action);
+    }
+
+    /**
+     * Passes the keys which start with the first bits of the prefix to the action in ascending order.
+     */
+    public void forEachWithPrefix(long prefix, int bits, LongConsumer action) {
+        forEach(subtree(prefix, bits), action);
+    }
+
+    /**
+     * Returns a cursor over all keys, which can be moved to another prefix with {@link Cursor#seek(long, int)}.
+     */
+    public Cursor cursor() {
+        Cursor cursor = new Cursor();
+        cursor.reset(root());
+        return cursor;
+    }
+
+    @Override
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    @Override
+    void setKeyAt(int slot, long key) {
+        keys[slot] = key;
+    }
+
+    @Override
+    void ensureKeyCapacity(int capacity) {
+        if (capacity > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(capacity, keys.length * 2));
+        }
+    }
+
+    private void forEach(int child, LongConsumer action) {
+        if (child == NONE) {
+            return;
+        } else if (child < 0) {
+            action.accept(keys[~child]);
+            return;
+        }
+        forEach(left(child), action);
+        forEach(right(child), action);
+    }
+
+    /**
+     * Iterator over keys in ascending order. The trie must not be modified while it is used.
+     */
+    public class Cursor extends SlotCursor implements PrimitiveIterator.OfLong {
+
+        private Cursor() {
+        }
+
+        /**
+         * Moves the cursor to the first key which starts with the first bits of the prefix.
+         */
+        public Cursor seek(long prefix, int bits) {
+            reset(subtree(prefix, bits));
+            return this;
+        }
+
+        @Override
+        public long nextLong() {
+            return keys[nextSlot()];
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.autocomplete.datatype;
+
+/**
+ * Node of a {@link PatriciaMap}, which also holds the value and the payload of its key. Plain tries use
+ * {@link TrieNode} and don't pay for these fields.
+ */
+final class MapNode<K> extends TrieNode<K> {
+
+    private Object value;
+    private long payload;
+
+    MapNode(K key, int bitIndex) {
+        super(key, bitIndex);
+    }
+
+    /**
+     * Value of the key held by this node. Its type is up to the owner of the map: the V of a {@link PatriciaMap},
+     * or the extra keys of a node for {@link NodeKeys}.
+     */
+    Object getValue() {
+        return value;
+    }
+
+    void setValue(Object value) {
+        this.value = value;
+    }
+
+    /**
+     * Primitive payload of the key held by this node, see {@link PatriciaMap#getPayload(Object)}. Unlike the score it
+     * takes no part in ranking.
+     */
+    long getPayload() {
+        return payload;
+    }
+
+    void setPayload(long payload) {
+        this.payload = payload;
+    }
+
+    @Override
+    void clearEntry() {
+        super.clearEntry();
+        value = null;
+        payload = 0L;
+    }
+
+    @Override
+    void copyEntry(TrieNode<K> from) {
+        super.copyEntry(from);
+        MapNode<K> node = (MapNode<K>) from;
+        value = node.value;
+        payload = node.payload;
+    }
+}
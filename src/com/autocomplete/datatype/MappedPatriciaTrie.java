@@ -0,0 +1,164 @@
+package com.autocomplete.datatype;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Trie served straight from a memory mapped file written by {@link CompactPatriciaTrie#writeTo(Path)}.
+ *
+ * Opening only maps the file and checks its header, nodes and keys are read from the mapped region on demand and
+ * never copied onto the heap. Several processes mapping the same file share its pages in the page cache. A single
+ * mapping is limited to 2GB.
+ */
+public class MappedPatriciaTrie extends CompactPatriciaTrie {
+
+    private final int keyCount;
+    private final IntBuffer bitIndex;
+    private final IntBuffer left;
+    private final IntBuffer right;
+    private final IntBuffer keyOffsets;
+    private final CharBuffer keys;
+
+    /**
+     * Maps the given trie file read-only.
+     */
+    public static MappedPatriciaTrie open(Path file) throws IOException {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid trie file length " + length + ": " + file);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a trie file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported trie file version " + version + ": " + file);
+            }
+
+            int keyCount = buffer.getInt();
+            int poolLength = buffer.getInt();
+            int root = buffer.getInt();
+            int from = buffer.getInt();
+            int to = buffer.getInt();
+
+            int nodes = Math.max(keyCount - 1, 0);
+            long expected = HEADER_SIZE + (3L * nodes + keyCount + 1) * Integer.BYTES
+                    + (long) poolLength * Character.BYTES;
+            if (keyCount < 0 || poolLength < 0 || expected != length) {
+                throw new IOException("Corrupt trie file, expected " + expected + " bytes: " + file);
+            }
+            if (!isValidRange(root, from, to, keyCount)) {
+                throw new IOException("Corrupt trie file, root " + root + " and keys " + from + ".." + to
+                        + " out of range for " + keyCount + " keys: " + file);
+            }
+
+            int position = HEADER_SIZE;
+            IntBuffer bitIndex = slice(buffer, position, nodes * Integer.BYTES).asIntBuffer();
+            position += nodes * Integer.BYTES;
+            IntBuffer left = slice(buffer, position, nodes * Integer.BYTES).asIntBuffer();
+            position += nodes * Integer.BYTES;
+            IntBuffer right = slice(buffer, position, nodes * Integer.BYTES).asIntBuffer();
+            position += nodes * Integer.BYTES;
+            IntBuffer keyOffsets = slice(buffer, position, (keyCount + 1) * Integer.BYTES).asIntBuffer();
+            position += (keyCount + 1) * Integer.BYTES;
+            CharBuffer keys = slice(buffer, position, poolLength * Character.BYTES).asCharBuffer();
+            if (keyOffsets.get(0) != 0 || keyOffsets.get(keyCount) != poolLength) {
+                throw new IOException("Corrupt trie file, key offsets don't span the key pool: " + file);
+            }
+
+            return new MappedPatriciaTrie(keyCount, bitIndex, left, right, keyOffsets, keys, root, from, to);
+        } finally {
+            // The mapping stays valid after the channel is closed.
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    private MappedPatriciaTrie(int keyCount, IntBuffer bitIndex, IntBuffer left, IntBuffer right,
+            IntBuffer keyOffsets, CharBuffer keys, int root, int from, int to) {
+        super(root, from, to);
+        this.keyCount = keyCount;
+        this.bitIndex = bitIndex;
+        this.left = left;
+        this.right = right;
+        this.keyOffsets = keyOffsets;
+        this.keys = keys;
+    }
+
+    @Override
+    public MappedPatriciaTrie subtree(String prefix) {
+        return (MappedPatriciaTrie) super.subtree(prefix);
+    }
+
+    @Override
+    int keyCount() {
+        return keyCount;
+    }
+
+    @Override
+    int bitIndex(int node) {
+        return bitIndex.get(node);
+    }
+
+    @Override
+    int left(int node) {
+        return left.get(node);
+    }
+
+    @Override
+    int right(int node) {
+        return right.get(node);
+    }
+
+    @Override
+    int keyOffset(int index) {
+        return keyOffsets.get(index);
+    }
+
+    @Override
+    char poolChar(int offset) {
+        return keys.get(offset);
+    }
+
+    @Override
+    MappedPatriciaTrie view(int root, int from, int to) {
+        return new MappedPatriciaTrie(keyCount, bitIndex, left, right, keyOffsets, keys, root, from, to);
+    }
+
+    /**
+     * Returns whether the root is empty, an internal node or a key, and the view's keys are within the stored ones.
+     * The root of a view covers exactly its keys, so an empty root goes with an empty view and a key root with a
+     * single key.
+     */
+    private static boolean isValidRange(int root, int from, int to, int keyCount) {
+        if (from < 0 || from > to || to > keyCount) {
+            return false;
+        }
+        if (root == EMPTY) {
+            return from == to;
+        }
+        if (root >= 0) {
+            return root < keyCount - 1 && to - from >= 2;
+        }
+        return ~root == from && to == from + 1;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position);
+        duplicate.limit(position + length);
+        return duplicate.slice();
+    }
+}
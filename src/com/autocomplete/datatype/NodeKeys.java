@@ -0,0 +1,80 @@
+package com.autocomplete.datatype;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Several keys with the same bits in one trie node, such as the spellings of a word which fold to the same
+ * chars. The node holds one of them as its key. If that is the only one, nothing else is stored, otherwise the node
+ * value is an array of all of them in the order they were added. The nodes are those of a {@link PatriciaMap}.
+ */
+final class NodeKeys {
+
+    /**
+     * Returns the keys of the node.
+     */
+    static <K> List<K> of(MapNode<K> node) {
+        Object value = node.getValue();
+        if (value == null) {
+            return Collections.singletonList(node.getKey());
+        }
+        return TrieUtil.cast(Arrays.asList((Object[]) value));
+    }
+
+    static <K> int count(MapNode<K> node) {
+        Object value = node.getValue();
+        return value == null ? 1 : ((Object[]) value).length;
+    }
+
+    /**
+     * Returns the index of the key among the keys of the node, or -1.
+     */
+    static <K> int indexOf(MapNode<K> node, K key) {
+        Object value = node.getValue();
+        if (value == null) {
+            return node.getKey().equals(key) ? 0 : -1;
+        }
+
+        Object[] keys = (Object[]) value;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the key to the node, returns false if the node has it already.
+     */
+    static <K> boolean add(MapNode<K> node, K key) {
+        if (indexOf(node, key) >= 0) {
+            return false;
+        }
+
+        Object value = node.getValue();
+        Object[] keys = value == null ? new Object[] { node.getKey() } : (Object[]) value;
+        Object[] added = Arrays.copyOf(keys, keys.length + 1);
+        added[keys.length] = key;
+        node.setValue(added);
+        return true;
+    }
+
+    /**
+     * Removes the key at the given index from a node with more than one key. The last key of a node has to be
+     * removed from the trie instead.
+     */
+    static <K> void remove(MapNode<K> node, int index) {
+        Object[] keys = (Object[]) node.getValue();
+        Object[] remaining = new Object[keys.length - 1];
+        System.arraycopy(keys, 0, remaining, 0, index);
+        System.arraycopy(keys, index + 1, remaining, index, remaining.length - index);
+        // The key of a node can be swapped for any other of its keys, their bits are the same.
+        node.setKey(TrieUtil.<K> cast(remaining[0]));
+        node.setValue(remaining.length == 1 ? null : remaining);
+    }
+
+    private NodeKeys() {
+    }
+}
@@ -0,0 +1,115 @@
+package com.autocomplete.datatype;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.autocomplete.comparators.NormalizingKeyComparator;
+
+/**
+ * Trie of display strings which completes case and accent insensitively. Keys are indexed with
+ * {@link NormalizingKeyComparator#FOLDED}, so all variants of a word, such as "Café", "cafe" and "CAFE", share one
+ * node and a prefix in any of its variants finds them all in one subtree walk. Queries are folded char by char while
+ * descending, nothing is allocated for it.
+ *
+ * The node of a word holds its variants as {@link NodeKeys}.
+ */
+public class NormalizedPatriciaTrie {
+
+    private final PatriciaMap<String, Object[]> trie = new PatriciaMap<>(NormalizingKeyComparator.FOLDED);
+    private int size = 0;
+
+    /**
+     * Returns the number of distinct display strings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds the display string. The score of its word is kept.
+     */
+    public void put(String key) {
+        MapNode<String> node = trie.getNode(key);
+        if (node == null) {
+            trie.put(key);
+            size++;
+        } else if (NodeKeys.add(node, key)) {
+            size++;
+        }
+    }
+
+    /**
+     * Adds the display string and sets the score of its word, which all of the word's variants share.
+     */
+    public void put(String key, long score) {
+        put(key);
+        trie.put(key, score);
+    }
+
+    public boolean contains(String key) {
+        MapNode<String> node = trie.getNode(key);
+        return node != null && NodeKeys.indexOf(node, key) >= 0;
+    }
+
+    /**
+     * Returns all display strings of the given string's word, or an empty list.
+     */
+    public List<String> getVariants(String key) {
+        MapNode<String> node = trie.getNode(key);
+        return node == null ? new ArrayList<String>() : new ArrayList<>(NodeKeys.of(node));
+    }
+
+    /**
+     * Removes the display string. Its word goes away with its last variant.
+     */
+    public boolean remove(String key) {
+        MapNode<String> node = trie.getNode(key);
+        if (node == null) {
+            return false;
+        }
+
+        int index = NodeKeys.indexOf(node, key);
+        if (index < 0) {
+            return false;
+        }
+
+        size--;
+        if (NodeKeys.count(node) == 1) {
+            trie.remove(key);
+        } else {
+            NodeKeys.remove(node, index);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the display strings of the first words with the given prefix in folded key order, at most
+     * numOfSuggestions. The variants of a word come together.
+     */
+    public List<String> getSuggestions(String prefix, int numOfSuggestions) {
+        return collect(trie.getSuggestionNodes(prefix, numOfSuggestions), numOfSuggestions);
+    }
+
+    /**
+     * Returns the display strings of the highest scored words with the given prefix, at most k.
+     */
+    public List<String> getTopSuggestions(String prefix, int k) {
+        return collect(trie.getTopSuggestionNodes(prefix, k), k);
+    }
+
+    /**
+     * Returns the display strings of the words of the given nodes, at most limit.
+     */
+    private static List<String> collect(List<TrieNode<String>> nodes, int limit) {
+        List<String> suggestions = new ArrayList<>();
+        for (TrieNode<String> node : nodes) {
+            for (String variant : NodeKeys.of((MapNode<String>) node)) {
+                if (suggestions.size() >= limit) {
+                    return suggestions;
+                }
+                suggestions.add(variant);
+            }
+        }
+        return suggestions;
+    }
+}
@@ -0,0 +1,178 @@
+package com.autocomplete.datatype;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.LongBinaryOperator;
+
+import com.autocomplete.comparators.KeyComparator;
+
+/**
+ * Patricia trie which keeps a value with every key, such as the document id or display string of a completion.
+ * Values live in the trie nodes, so suggestions come with their values without a second lookup.
+ *
+ * Every key also has a primitive long payload, such as a numeric document id or a count, which is kept apart from
+ * the score the suggestions are ranked by. The methods for values and payloads have their own names so that they
+ * never resolve to the score overloads of {@link PatriciaTrie}.
+ */
+public class PatriciaMap<K, V> extends PatriciaTrie<K> {
+
+    public PatriciaMap(KeyComparator<K> keyComp) {
+        super(keyComp);
+    }
+
+    @Override
+    MapNode<K> newNode(K key, int bitIndex) {
+        return new MapNode<K>(key, bitIndex);
+    }
+
+    @Override
+    MapNode<K> getNode(K key) {
+        return (MapNode<K>) super.getNode(key);
+    }
+
+    @Override
+    MapNode<K> putEntry(K key) {
+        return (MapNode<K>) super.putEntry(key);
+    }
+
+    /**
+     * Returns the value of the given key, or null if the key is not in the map or has no value.
+     */
+    public V get(K key) {
+        MapNode<K> node = getNode(key);
+        return node == null ? null : TrieUtil.<V> cast(node.getValue());
+    }
+
+    /**
+     * Adds the key with the given value, or replaces the value of an existing key. The score of an existing key is
+     * kept. Returns the previous value, or null.
+     */
+    public V putValue(K key, V value) {
+        MapNode<K> node = putEntry(key);
+        if (node == null) {
+            return null;
+        }
+
+        V previous = TrieUtil.cast(node.getValue());
+        node.setValue(value);
+        return previous;
+    }
+
+    /**
+     * Adds the key with the given score and value, or replaces both for an existing key. Returns the previous
+     * value, or null.
+     */
+    public V putValue(K key, long score, V value) {
+        MapNode<K> node = putEntry(key);
+        if (node == null) {
+            return null;
+        }
+
+        setScore(node, score);
+        V previous = TrieUtil.cast(node.getValue());
+        node.setValue(value);
+        return previous;
+    }
+
+    /**
+     * Same as {@link java.util.Map#merge}: adds the key with the given value if it has no value yet, otherwise
+     * replaces its value with the result of the remapping function, or removes the key if that is null. The node
+     * is found once and updated in place. Returns the new value.
+     */
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+        TrieUtil.notNull(value, "Value cannot be null");
+        MapNode<K> node = putEntry(key);
+        if (node == null) {
+            return null;
+        }
+
+        V oldValue = TrieUtil.cast(node.getValue());
+        V newValue = oldValue == null ? value : remapping.apply(oldValue, value);
+        if (newValue == null) {
+            remove(key);
+        } else {
+            node.setValue(newValue);
+        }
+        return newValue;
+    }
+
+    /**
+     * Returns the payload of the given key, or null if the key is not in the map. Keys have a payload of 0 until one
+     * is set.
+     */
+    public Long getPayload(K key) {
+        MapNode<K> node = getNode(key);
+        return node == null ? null : node.getPayload();
+    }
+
+    /**
+     * Adds the key with the given payload, or replaces the payload of an existing key. Score and value of an existing
+     * key are kept.
+     */
+    public void putPayload(K key, long payload) {
+        MapNode<K> node = putEntry(key);
+        if (node != null) {
+            node.setPayload(payload);
+        }
+    }
+
+    /**
+     * Same as {@link #mergeScore(Object, long, LongBinaryOperator)} for the payload: adds the key with the given
+     * payload, or replaces the payload of an existing key with the result of the remapping function applied to its
+     * old payload and the given one. Returns the new payload.
+     */
+    public long mergePayload(K key, long payload, LongBinaryOperator remapping) {
+        int oldSize = size();
+        MapNode<K> node = putEntry(key);
+        if (node == null) {
+            return payload;
+        }
+
+        long newPayload = size() != oldSize ? payload : remapping.applyAsLong(node.getPayload(), payload);
+        node.setPayload(newPayload);
+        return newPayload;
+    }
+
+    /**
+     * Returns the first numOfSuggestions keys with the given prefix together with their scores, payloads and values,
+     * in the same order as {@link #getSuggestions(Object, int)}.
+     */
+    public List<Entry<K, V>> getSuggestionEntries(K prefix, int numOfSuggestions) {
+        List<TrieNode<K>> nodes = getSuggestionNodes(prefix, numOfSuggestions);
+        List<Entry<K, V>> entries = new ArrayList<>(nodes.size());
+        for (TrieNode<K> trieNode : nodes) {
+            MapNode<K> node = (MapNode<K>) trieNode;
+            entries.add(new Entry<K, V>(node.getKey(), node.getScore(), node.getPayload(),
+                    TrieUtil.<V> cast(node.getValue())));
+        }
+        return entries;
+    }
+
+    /**
+     * Immutable key and value of a suggestion, with the score and payload of the key. Equality only looks at key and
+     * value, as for any {@link java.util.Map.Entry}.
+     */
+    public static class Entry<K, V> extends AbstractMap.SimpleImmutableEntry<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long score;
+        private final long payload;
+
+        public Entry(K key, long score, long payload, V value) {
+            super(key, value);
+            this.score = score;
+            this.payload = payload;
+        }
+
+        public long getScore() {
+            return score;
+        }
+
+        public long getPayload() {
+            return payload;
+        }
+    }
+}
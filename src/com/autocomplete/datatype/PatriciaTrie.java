@@ -1,103 +1,1122 @@
 package com.autocomplete.datatype;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongBinaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.autocomplete.comparators.KeyComparator;
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.metrics.TrieMetrics;
 
 public class PatriciaTrie<K> {
 
-    private final TrieNode<K> root = new TrieNode<K>(null, -1);
+    /**
+     * Number of leading key bits {@link Builder#build(ForkJoinPool)} splits the keys by, the first char of a string.
+     */
+    private static final int SHARD_BITS = 16;
+    private static final int SHARDS = 1 << SHARD_BITS;
+
+    private final TrieNode<K> root = newNode(null, -1);
     private final KeyComparator<K> keyComp;
     private int size = 0;
 
+    /**
+     * Sink for hot path measurements, null if the trie isn't instrumented.
+     */
+    private TrieMetrics metrics;
+
     public PatriciaTrie(KeyComparator<K> keyComp) {
         this.keyComp = keyComp;
     }
 
-    public int size() {
-        return size;
+    /**
+     * Reports lookup depths, insert path lengths, iteration restarts and getSuggestions latencies to the given sink,
+     * or stops reporting if it is null. Bit tests are counted by wrapping the key comparator in a
+     * {@link com.autocomplete.metrics.CountingKeyComparator}.
+     */
+    public void setMetrics(TrieMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Builds a trie from the given keys in one pass. Keys in bit order (for strings, ascending order) are linked in
+     * directly, any other input is sorted first.
+     */
+    public static <K> PatriciaTrie<K> bulkLoad(KeyComparator<K> keyComp, Iterator<K> keys) {
+        Builder<K> builder = new Builder<>(keyComp);
+        while (keys.hasNext()) {
+            builder.add(keys.next());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Same as {@link #bulkLoad(KeyComparator, Iterator)}, sorting and linking on the threads of the given pool.
+     */
+    public static <K> PatriciaTrie<K> bulkLoad(KeyComparator<K> keyComp, Iterator<K> keys, ForkJoinPool pool) {
+        Builder<K> builder = new Builder<>(keyComp);
+        while (keys.hasNext()) {
+            builder.add(keys.next());
+        }
+        return builder.build(pool);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public K firstKey() {
+        return firstNode().getKey();
+    }
+
+    public List<K> getSuggestions(K prefix, int numOfSuggestions) {
+        TrieMetrics metrics = this.metrics;
+        long start = metrics == null ? 0L : System.nanoTime();
+
+        ArrayList<K> suggestions = new ArrayList<>();
+        Iterator<K> iterator = suggestionIterator(prefix);
+        while (suggestions.size() < numOfSuggestions && iterator.hasNext()) {
+            suggestions.add(iterator.next());
+        }
+
+        if (metrics != null) {
+            metrics.suggestions(System.nanoTime() - start);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns the first numOfSuggestions keys for each of the given prefixes, in the order of the prefixes.
+     *
+     * The prefixes are handled in key order, so that a prefix can continue the descent of a shorter prefix of it,
+     * as for the prefixes a user types one key at a time, instead of starting at the root again.
+     */
+    public List<List<K>> getSuggestionsBatch(List<K> prefixes, int numOfSuggestions) {
+        Integer[] order = new Integer[prefixes.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        final List<K> keys = prefixes;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer index, Integer other) {
+                return keyComp.compare(keys.get(index), keys.get(other));
+            }
+        });
+
+        List<List<K>> suggestions = new ArrayList<>(Collections.<List<K>> nCopies(order.length, null));
+        Deque<K> shorter = new ArrayDeque<>();
+        Deque<Lookup<K>> lookups = new ArrayDeque<>();
+        for (int index : order) {
+            K prefix = TrieUtil.notNull(prefixes.get(index), "Prefix cannot be null");
+            int lengthInBits = lengthInBits(prefix);
+            while (!shorter.isEmpty()
+                    && (lookups.peek().lengthInBits > lengthInBits || !isPrefix(shorter.peek(), prefix))) {
+                shorter.pop();
+                lookups.pop();
+            }
+
+            Lookup<K> lookup = lookup(lookups.peek(), prefix);
+            shorter.push(prefix);
+            lookups.push(lookup);
+
+            List<K> keysOfPrefix = new ArrayList<>();
+            Iterator<K> iterator = new SuggestionIterator(lookup);
+            while (keysOfPrefix.size() < numOfSuggestions && iterator.hasNext()) {
+                keysOfPrefix.add(iterator.next());
+            }
+            suggestions.set(index, keysOfPrefix);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns a lazy iterator over the keys with the given prefix in bit order. Keys are only looked up as they are
+     * consumed, so stopping early costs nothing for the rest of the subtree.
+     */
+    public Iterator<K> suggestionIterator(K prefix) {
+        return new SuggestionIterator(prefix);
+    }
+
+    /**
+     * Returns a lazy iterator over the keys with the given prefix which come after the given key, for paging with
+     * the last key of the previous page. The key doesn't have to be in the trie anymore.
+     */
+    public Iterator<K> suggestionIterator(K prefix, K after) {
+        SuggestionIterator iterator = new SuggestionIterator(prefix);
+        iterator.skipTo(after);
+        return iterator;
+    }
+
+    /**
+     * Returns a sequential stream over the keys with the given prefix in bit order.
+     */
+    public Stream<K> suggestionStream(K prefix) {
+        Spliterator<K> spliterator = Spliterators.spliteratorUnknownSize(suggestionIterator(prefix),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Returns an immutable, compact snapshot of this trie for read-only serving. Only tries using
+     * {@link StringKeyComparator#CHAR} can be frozen.
+     */
+    public FrozenPatriciaTrie freeze() {
+        if (keyComp != StringKeyComparator.CHAR) {
+            throw new UnsupportedOperationException("Only tries of StringKeyComparator.CHAR keys can be frozen");
+        }
+
+        List<String> keys = new ArrayList<>(size);
+        for (TrieNode<K> node = firstNode(); node != null; node = nextKeyInSubtree(node, null)) {
+            keys.add(TrieUtil.<String> cast(node.getKey()));
+        }
+        return FrozenPatriciaTrie.of(keys);
+    }
+
+    /**
+     * Returns up to k keys with the given prefix, highest score first and keys with the same score in bit order.
+     * Subtrees are expanded best-first on their cached max score, so only subtrees which can still contribute to the
+     * top k are visited.
+     */
+    public List<K> getTopSuggestions(K prefix, int k) {
+        List<TrieNode<K>> nodes = getTopSuggestionNodes(prefix, k);
+        ArrayList<K> suggestions = new ArrayList<>(nodes.size());
+        for (TrieNode<K> node : nodes) {
+            suggestions.add(node.getKey());
+        }
+        return suggestions;
+    }
+
+    List<TrieNode<K>> getTopSuggestionNodes(K prefix, int k) {
+        return getTopSuggestionNodes(lookup(null, prefix), k);
+    }
+
+    private List<TrieNode<K>> getTopSuggestionNodes(Lookup<K> lookup, int k) {
+        ArrayList<TrieNode<K>> suggestions = new ArrayList<>();
+        TrieNode<K> subtree = lookup.entry;
+        if (subtree == null || k <= 0) {
+            return suggestions;
+        }
+
+        // The prefix ended on an uplink, the key of the subtree is the only match.
+        if (subtree == root || subtree.getBitIndex() < lookup.lengthInBits) {
+            suggestions.add(subtree);
+            return suggestions;
+        }
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(subtree, false, subtree.getMaxScore()));
+
+        while (suggestions.size() < k && !queue.isEmpty()) {
+            Candidate candidate = queue.poll();
+            TrieNode<K> node = candidate.node;
+            if (candidate.external) {
+                suggestions.add(node);
+                continue;
+            }
+
+            TrieNode<K> left = node.getLeft();
+            if (left.getBitIndex() <= node.getBitIndex()) {
+                if (!left.isEmpty()) {
+                    queue.add(new Candidate(left, true, left.getScore()));
+                }
+            } else {
+                queue.add(new Candidate(left, false, left.getMaxScore()));
+            }
+
+            TrieNode<K> right = node.getRight();
+            if (right.getBitIndex() <= node.getBitIndex()) {
+                if (!right.isEmpty()) {
+                    queue.add(new Candidate(right, true, right.getScore()));
+                }
+            } else {
+                queue.add(new Candidate(right, false, right.getMaxScore()));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns up to k keys which start with a string within maxEdits edits (Levenshtein distance) of the given
+     * prefix, closest first. Keys have to be CharSequences with 16 bits per char, as with
+     * {@link StringKeyComparator#CHAR}.
+     *
+     * The trie is searched best-first alongside one row of the edit distance matrix per subtree. The chars shared
+     * by all keys of a subtree are only matched once, and a subtree is dropped as soon as its row shows that none of
+     * its keys can get within maxEdits.
+     */
+    public List<K> getFuzzySuggestions(K prefix, int maxEdits, int k) {
+        CharSequence query = (CharSequence) TrieUtil.notNull(prefix, "Prefix cannot be null");
+        ArrayList<K> suggestions = new ArrayList<>();
+        if (k <= 0 || size == 0) {
+            return suggestions;
+        }
+
+        int[] row = new int[query.length() + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = i;
+        }
+
+        long sequence = 0;
+        PriorityQueue<FuzzyCandidate<K>> queue = new PriorityQueue<>();
+        FuzzyCandidate<K> start = new FuzzyCandidate<K>(root, false, 0, row, row[query.length()], 0, sequence++);
+        addFuzzyCandidate(queue, start, root.getLeft(), query, maxEdits, sequence++);
+
+        while (suggestions.size() < k && !queue.isEmpty()) {
+            FuzzyCandidate<K> candidate = queue.poll();
+            TrieNode<K> node = candidate.node;
+            if (candidate.external) {
+                suggestions.add(node.getKey());
+                continue;
+            }
+
+            addFuzzyCandidate(queue, candidate, node.getRight(), query, maxEdits, sequence++);
+            addFuzzyCandidate(queue, candidate, node.getLeft(), query, maxEdits, sequence++);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Matches the chars between the parent and the given child against the query and queues the child unless it is
+     * out of the edit budget. Uplinks are single keys which are matched completely.
+     */
+    private void addFuzzyCandidate(PriorityQueue<FuzzyCandidate<K>> queue, FuzzyCandidate<K> parent,
+            TrieNode<K> child, CharSequence query, int maxEdits, long sequence) {
+        boolean external = child.getBitIndex() <= parent.node.getBitIndex();
+        if (child.isEmpty()) {
+            return;
+        }
+
+        CharSequence key = (CharSequence) child.getKey();
+        // All keys below an internal node share the chars in front of its bit index.
+        int end = external ? key.length() : Math.min(child.getBitIndex() / Character.SIZE, key.length());
+
+        int[] row = parent.row;
+        int best = parent.best;
+        int min = Integer.MAX_VALUE;
+        for (int i = parent.depth; i < end; i++) {
+            int[] next = new int[row.length];
+            next[0] = row[0] + 1;
+            min = next[0];
+            for (int j = 1; j < row.length; j++) {
+                int cost = query.charAt(j - 1) == key.charAt(i) ? 0 : 1;
+                next[j] = Math.min(Math.min(row[j] + 1, next[j - 1] + 1), row[j - 1] + cost);
+                min = Math.min(min, next[j]);
+            }
+            row = next;
+            best = Math.min(best, row[row.length - 1]);
+
+            // Longer keys can't get any closer than the smallest entry of the row.
+            if (best > maxEdits && min > maxEdits) {
+                return;
+            }
+        }
+
+        if (row == parent.row) {
+            for (int distance : row) {
+                min = Math.min(min, distance);
+            }
+        }
+
+        int bound = external ? best : Math.min(best, min);
+        if (bound <= maxEdits) {
+            queue.add(new FuzzyCandidate<K>(child, external, Math.max(end, parent.depth), row, best, bound, sequence));
+        }
+    }
+
+    /**
+     * Adds the key to the trie. The score of an already existing key is kept.
+     */
+    public void put(K key) {
+        putEntry(key);
+    }
+
+    /**
+     * Adds the key to the trie, or updates its score if it already exists.
+     */
+    public void put(K key, long score) {
+        TrieNode<K> node = putNode(key);
+        if (node != null) {
+            setScore(node, score);
+        }
+    }
+
+    /**
+     * Adds the key with the given score, or replaces the score of an existing key with the result of the remapping
+     * function applied to its old score and the given one, as in {@link java.util.Map#merge}. The score is updated
+     * in place, so counting a key costs a single descent. Returns the new score.
+     */
+    public long mergeScore(K key, long score, LongBinaryOperator remapping) {
+        int oldSize = size;
+        TrieNode<K> node = putNode(key);
+        if (node == null) {
+            return score;
+        }
+
+        long newScore = size != oldSize ? score : remapping.applyAsLong(node.getScore(), score);
+        setScore(node, newScore);
+        return newScore;
+    }
+
+    /**
+     * Returns the score of the given key, or null if the key is not in the trie.
+     */
+    public Long getScore(K key) {
+        TrieNode<K> node = getNode(key);
+        return node == null ? null : node.getScore();
+    }
+
+    /**
+     * Removes the key from the trie. Returns true if the key was in the trie.
+     */
+    public boolean remove(K key) {
+        TrieNode<K> node = getNode(key);
+        if (node == null) {
+            return false;
+        }
+        removeNode(node);
+        return true;
+    }
+
+    /**
+     * Removes all keys with the given prefix and returns how many were removed.
+     */
+    public int removePrefix(K prefix) {
+        List<TrieNode<K>> nodes = new ArrayList<>();
+        Iterator<K> iterator = suggestionIterator(prefix);
+        while (iterator.hasNext()) {
+            nodes.add(getNode(iterator.next()));
+        }
+
+        if (isWorthRebuilding(nodes.size())) {
+            final K removedPrefix = prefix;
+            rebuild(new Predicate<K>() {
+                @Override
+                public boolean test(K key) {
+                    return !isPrefix(removedPrefix, key);
+                }
+            });
+        } else {
+            for (TrieNode<K> node : nodes) {
+                removeNode(node);
+            }
+        }
+        return nodes.size();
+    }
+
+    /**
+     * Removes all given keys and returns how many of them were in the trie.
+     */
+    public int removeAll(Iterable<? extends K> keys) {
+        int removed = 0;
+        for (K key : keys) {
+            if (remove(key)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all keys the filter does not retain and returns how many were removed. Every key is visited once. If
+     * a large part of the trie goes away, it is rebuilt from the remaining keys in one pass instead of unlinking the
+     * removed keys one by one.
+     */
+    public int retainAll(Predicate<? super K> filter) {
+        List<TrieNode<K>> nodes = new ArrayList<>();
+        for (TrieNode<K> node = firstNode(); node != null; node = nextKeyInSubtree(node, null)) {
+            if (!filter.test(node.getKey())) {
+                nodes.add(node);
+            }
+        }
+
+        if (isWorthRebuilding(nodes.size())) {
+            rebuild(filter);
+        } else {
+            for (TrieNode<K> node : nodes) {
+                removeNode(node);
+            }
+        }
+        return nodes.size();
+    }
+
+    /**
+     * Same as {@link #put(Object)}, returns the node holding the key or null if the key could not be stored.
+     */
+    TrieNode<K> putEntry(K key) {
+        int oldSize = size;
+        TrieNode<K> node = putNode(key);
+        if (node != null && size != oldSize) {
+            updateMaxScore(node);
+        }
+        return node;
+    }
+
+    void setScore(TrieNode<K> node, long score) {
+        node.setScore(score);
+        updateMaxScore(node);
+    }
+
+    /**
+     * Creates every node of the trie, the root included. Subclasses which keep more per key return a subclass of
+     * {@link TrieNode}, see {@link PatriciaMap}. Called while the trie is constructed, so it must not use any state.
+     */
+    TrieNode<K> newNode(K key, int bitIndex) {
+        return new TrieNode<K>(key, bitIndex);
+    }
+
+    /**
+     * Returns the nodes of the first numOfSuggestions keys with the given prefix, in bit order.
+     */
+    List<TrieNode<K>> getSuggestionNodes(K prefix, int numOfSuggestions) {
+        List<TrieNode<K>> nodes = new ArrayList<>();
+        SuggestionIterator iterator = new SuggestionIterator(prefix);
+        while (nodes.size() < numOfSuggestions && iterator.hasNext()) {
+            nodes.add(iterator.nextNode());
+        }
+        return nodes;
+    }
+
+    /**
+     * Same as {@link #getSuggestionNodes(Object, int)}, looking up the nodes as they are consumed.
+     */
+    Iterator<TrieNode<K>> suggestionNodeIterator(K prefix) {
+        final SuggestionIterator iterator = new SuggestionIterator(prefix);
+        return new Iterator<TrieNode<K>>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public TrieNode<K> next() {
+                return iterator.nextNode();
+            }
+        };
+    }
+
+    /**
+     * Inserts the key and returns the node holding it, or null if the key could not be stored.
+     */
+    private TrieNode<K> putNode(K key) {
+        if (key == null) {
+            throw new NullPointerException("Key cannot be null");
+        }
+
+        int lengthInBits = lengthInBits(key);
+
+        // Key with zero bits have to be root node
+        if (lengthInBits == 0) {
+            if (root.isEmpty()) {
+                incrementSize();
+            }
+            root.setKey(key);
+            return root;
+        }
+
+        TrieNode<K> nearest = getNearestNodeForKey(key);
+        if (compareKeys(key, nearest.getKey())) {
+            if (nearest.isEmpty()) {
+                incrementSize();
+            }
+            nearest.setKey(key);
+            return nearest;
+        }
+
+        int bitIndex = bitIndex(key, nearest.getKey());
+        if (!TrieUtil.isOutOfBoundsIndex(bitIndex)) {
+            if (TrieUtil.isValidBitIndex(bitIndex)) {
+                TrieNode<K> newEntry = newNode(key, bitIndex);
+                addTrieNode(newEntry);
+                incrementSize();
+                if (metrics != null) {
+                    metrics.insert(depthOf(newEntry));
+                }
+                return newEntry;
+            } else if (TrieUtil.isNullBitKey(bitIndex)) {
+                // Root key goes here
+                if (root.isEmpty()) {
+                    incrementSize();
+                }
+                root.setKey(key);
+                return root;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the node holding the given key, or null if the key is not in the trie.
+     */
+    TrieNode<K> getNode(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        TrieNode<K> nearest = lengthInBits(key) == 0 ? root : getNearestNodeForKey(key);
+        if (!nearest.isEmpty() && compareKeys(key, nearest.getKey())) {
+            return nearest;
+        }
+        return null;
+    }
+
+    /**
+     * Unlinks the node holding a key. The root only drops its key, it always stays in place.
+     */
+    private void removeNode(TrieNode<K> node) {
+        TrieNode<K> changed;
+        if (node == root) {
+            changed = root.getPredecessor();
+        } else if (node.isInternalNode()) {
+            changed = removeInternalNode(node);
+        } else {
+            changed = removeExternalNode(node);
+        }
+
+        node.clearEntry();
+        size--;
+
+        // Max scores can only go down, so the whole path is recomputed.
+        for (TrieNode<K> current = changed; current != root; current = current.getParent()) {
+            current.setMaxScore(Math.max(scoreOf(current.getLeft(), current), scoreOf(current.getRight(), current)));
+        }
+    }
+
+    /**
+     * Unlinks a node which has an uplink to itself by putting its other child in its place. Returns the lowest node
+     * whose children changed.
+     */
+    private TrieNode<K> removeExternalNode(TrieNode<K> node) {
+        TrieNode<K> parent = node.getParent();
+        TrieNode<K> child = node.getLeft() == node ? node.getRight() : node.getLeft();
+
+        if (parent.getLeft() == node) {
+            parent.setLeft(child);
+        } else {
+            parent.setRight(child);
+        }
+
+        // Either the child moves up, or it is an uplink which now comes from the parent.
+        if (child.getBitIndex() > parent.getBitIndex()) {
+            child.setParent(parent);
+        } else {
+            child.setPredecessor(parent);
+        }
+        return parent;
+    }
+
+    /**
+     * Unlinks a node with two real children. Its predecessor, the external node holding the only uplink to it, is
+     * unlinked from its own place and takes over the position of the removed node. Returns the lowest node whose
+     * children changed.
+     */
+    private TrieNode<K> removeInternalNode(TrieNode<K> node) {
+        TrieNode<K> predecessor = node.getPredecessor();
+        TrieNode<K> oldParent = predecessor.getParent();
+        TrieNode<K> child = predecessor.getLeft() == node ? predecessor.getRight() : predecessor.getLeft();
+
+        // The predecessor's other child takes its place. If that is an uplink to the predecessor itself, it comes
+        // from the predecessor's parent afterwards, unless that parent is the removed node.
+        if (predecessor.getPredecessor() == predecessor && oldParent != node) {
+            predecessor.setPredecessor(oldParent);
+        }
+        if (oldParent.getLeft() == predecessor) {
+            oldParent.setLeft(child);
+        } else {
+            oldParent.setRight(child);
+        }
+        if (child.getBitIndex() > oldParent.getBitIndex()) {
+            child.setParent(oldParent);
+        }
+
+        // Move the predecessor into the place of the removed node.
+        if (node.getLeft().getParent() == node) {
+            node.getLeft().setParent(predecessor);
+        }
+        if (node.getRight().getParent() == node) {
+            node.getRight().setParent(predecessor);
+        }
+        if (node.getParent().getLeft() == node) {
+            node.getParent().setLeft(predecessor);
+        } else {
+            node.getParent().setRight(predecessor);
+        }
+
+        predecessor.setBitIndex(node.getBitIndex());
+        predecessor.setParent(node.getParent());
+        predecessor.setLeft(node.getLeft());
+        predecessor.setRight(node.getRight());
+
+        // Uplinks of the removed node now come from the predecessor.
+        if (predecessor.getLeft().getBitIndex() <= predecessor.getBitIndex()) {
+            predecessor.getLeft().setPredecessor(predecessor);
+        }
+        if (predecessor.getRight().getBitIndex() <= predecessor.getBitIndex()) {
+            predecessor.getRight().setPredecessor(predecessor);
+        }
+
+        // The old parent is below the predecessor's new place, unless it was the removed node itself.
+        return oldParent == node ? predecessor : oldParent;
+    }
+
+    /**
+     * Removing a key costs a descent, rebuilding costs one pass over all keys. A rebuild pays off once a quarter of
+     * the keys go away.
+     */
+    private boolean isWorthRebuilding(int removed) {
+        return removed > 0 && removed >= size / 4;
+    }
+
+    /**
+     * Rebuilds the trie from the keys the filter retains, keeping their scores.
+     */
+    private void rebuild(Predicate<? super K> filter) {
+        List<TrieNode<K>> nodes = new ArrayList<>(size);
+        for (TrieNode<K> node = firstNode(); node != null; node = nextKeyInSubtree(node, null)) {
+            if (filter.test(node.getKey())) {
+                TrieNode<K> copy = newNode(node.getKey(), 0);
+                copy.copyEntry(node);
+                nodes.add(copy);
+            }
+        }
+        load(nodes);
+    }
+
+    /**
+     * Recomputes the cached max score on the path from the uplink pointing at the given node up to the root. Stops
+     * as soon as a node's max score does not change.
+     */
+    private void updateMaxScore(TrieNode<K> node) {
+        TrieNode<K> current = node.getPredecessor();
+        while (current != root) {
+            long maxScore = Math.max(scoreOf(current.getLeft(), current), scoreOf(current.getRight(), current));
+            if (maxScore == current.getMaxScore()) {
+                return;
+            }
+            current.setMaxScore(maxScore);
+            current = current.getParent();
+        }
+    }
+
+    /**
+     * Returns the best score reachable through the given child of 'from'.
+     */
+    private static long scoreOf(TrieNode<?> child, TrieNode<?> from) {
+        if (child.getBitIndex() <= from.getBitIndex()) {
+            return child.isEmpty() ? Long.MIN_VALUE : child.getScore();
+        }
+        return child.getMaxScore();
+    }
+
+    /**
+     * Replaces the content of this trie with the keys of the given nodes. Of equal keys the last one wins.
+     */
+    private void load(List<TrieNode<K>> nodes) {
+        if (link(nodes)) {
+            return;
+        }
+
+        // Try the cheaper key order first, it matches the bit order for strings.
+        nodes.sort(new Comparator<TrieNode<K>>() {
+            @Override
+            public int compare(TrieNode<K> node, TrieNode<K> other) {
+                return keyComp.compare(node.getKey(), other.getKey());
+            }
+        });
+        if (link(nodes)) {
+            return;
+        }
+
+        nodes.sort(new Comparator<TrieNode<K>>() {
+            @Override
+            public int compare(TrieNode<K> node, TrieNode<K> other) {
+                return compareBitOrder(node.getKey(), other.getKey());
+            }
+        });
+        link(nodes);
+    }
+
+    /**
+     * Links the given nodes into this trie in a single pass. Instead of descending from the root for every key, the
+     * right spine of the trie is kept on a stack. Returns false if a key is not in bit order, the trie content is
+     * undefined then.
+     */
+    private boolean link(List<TrieNode<K>> nodes) {
+        resetRoot();
+
+        Deque<TrieNode<K>> spine = new ArrayDeque<>();
+        Run<K> run = new Run<K>(root);
+        if (!linkRun(nodes, 0, nodes.size(), spine, run)) {
+            return false;
+        }
+        finishSpine(spine, null);
+        size = run.size;
+        return true;
+    }
+
+    private void resetRoot() {
+        root.clearEntry();
+        root.setLeft(root);
+        root.setPredecessor(root);
+        size = 0;
+    }
+
+    /**
+     * Links the nodes in [from, to) after the last node of the run, with the right spine on the given stack. Keys
+     * which are already linked are only updated. Returns false if a key is not in bit order.
+     */
+    private boolean linkRun(List<TrieNode<K>> nodes, int from, int to, Deque<TrieNode<K>> spine, Run<K> run) {
+        TrieNode<K> previous = run.last;
+        for (int i = from; i < to; i++) {
+            TrieNode<K> node = nodes.get(i);
+            K key = node.getKey();
+            int bitIndex = bitIndex(key, previous.getKey());
+
+            if (!TrieUtil.isValidBitIndex(bitIndex)) {
+                // Keys with zero bits have to be the root node, the same key as the previous one replaces it.
+                TrieNode<K> target = TrieUtil.isNullBitKey(bitIndex) || lengthInBits(key) == 0 ? root : previous;
+                if (target == root && previous != root) {
+                    return false;
+                }
+                if (target == root || compareKeys(key, target.getKey())) {
+                    if (target.isEmpty()) {
+                        run.size++;
+                    }
+                    target.copyEntry(node);
+                }
+                continue;
+            }
+
+            // The first different bit has to be set in the larger key.
+            if (!isBitSet(key, bitIndex)) {
+                return false;
+            }
+
+            // Everything on the spine below the new node becomes its left subtree.
+            TrieNode<K> left = previous;
+            boolean uplink = true;
+            while (!spine.isEmpty() && spine.peek().getBitIndex() > bitIndex) {
+                left = spine.pop();
+                left.setMaxScore(Math.max(scoreOf(left.getLeft(), left), scoreOf(left.getRight(), left)));
+                uplink = false;
+            }
+
+            node.setBitIndex(bitIndex);
+            node.setLeft(left);
+            node.setRight(node);
+            node.setPredecessor(node);
+            if (uplink) {
+                left.setPredecessor(node);
+            } else {
+                left.setParent(node);
+            }
+
+            TrieNode<K> parent = spine.isEmpty() ? root : spine.peek();
+            node.setParent(parent);
+            if (parent == root) {
+                root.setLeft(node);
+            } else {
+                parent.setRight(node);
+            }
+
+            spine.push(node);
+            previous = node;
+            run.last = node;
+            run.size++;
+        }
+        return true;
+    }
+
+    /**
+     * Pops the spine down to the given node, computing the max score of every popped node.
+     */
+    private static <K> void finishSpine(Deque<TrieNode<K>> spine, TrieNode<K> bottom) {
+        while (!spine.isEmpty() && spine.peek() != bottom) {
+            TrieNode<K> node = spine.pop();
+            node.setMaxScore(Math.max(scoreOf(node.getLeft(), node), scoreOf(node.getRight(), node)));
+        }
+    }
+
+    /**
+     * Same as {@link #load(List)}, with the work spread over the given pool.
+     *
+     * The keys are split into shards by their first {@link #SHARD_BITS} bits. Keys of one shard share these bits,
+     * so all bit indices inside a shard are at least SHARD_BITS and all bit indices between shards are below. Each
+     * shard is sorted and linked on its own below its first key, which is left without a bit index. The first keys
+     * are then linked in shard order like single keys, each carrying its shard along, which gives exactly the trie
+     * that {@link #load(List)} builds.
+     *
+     * Shard 0 is only sorted in parallel. Its keys start with zero bits, so they differ from the root key only at
+     * or after SHARD_BITS and have to be linked from the root like in {@link #load(List)}.
+     */
+    private void loadParallel(List<TrieNode<K>> nodes, ForkJoinPool pool) {
+        int[] shardOf = new int[nodes.size()];
+        pool.invoke(new ShardTask(nodes, shardOf, 0, nodes.size()));
+
+        // Counting sort into shards, keeping the input order within a shard.
+        int[] offsets = new int[SHARDS + 1];
+        boolean inShardOrder = true;
+        for (int i = 0; i < shardOf.length; i++) {
+            offsets[shardOf[i] + 1]++;
+            inShardOrder &= i == 0 || shardOf[i - 1] <= shardOf[i];
+        }
+        int shardCount = 0;
+        for (int i = 0; i < SHARDS; i++) {
+            if (offsets[i + 1] > 0) {
+                shardCount++;
+            }
+            offsets[i + 1] += offsets[i];
+        }
+
+        TrieNode<K>[] array = TrieUtil.cast(new TrieNode<?>[nodes.size()]);
+        int[] next = Arrays.copyOf(offsets, SHARDS);
+        for (int i = 0; i < shardOf.length; i++) {
+            array[next[shardOf[i]]++] = nodes.get(i);
+        }
+        List<TrieNode<K>> sharded = Arrays.asList(array);
+
+        int[] shards = new int[shardCount];
+        for (int i = 0, j = 0; i < SHARDS; i++) {
+            if (offsets[i + 1] > offsets[i]) {
+                shards[j++] = i;
+            }
+        }
+
+        // Same order of attempts as load(), so that the same one of several equal keys wins.
+        Shards shardsOf = new Shards(sharded, offsets, shards);
+        if (inShardOrder) {
+            pool.invoke(new ShardsTask(Phase.CHECK, shardsOf, 0, shardCount));
+        }
+        if (!inShardOrder || !shardsOf.areInBitOrder()) {
+            pool.invoke(new ShardsTask(Phase.SORT_KEYS, shardsOf, 0, shardCount));
+            if (!shardsOf.areInBitOrder() || !shardsOf.areInKeyOrder()) {
+                pool.invoke(new ShardsTask(Phase.SORT_BIT_ORDER, shardsOf, 0, shardCount));
+            }
+        }
+        pool.invoke(new ShardsTask(Phase.LINK, shardsOf, 0, shardCount));
+        graft(sharded, shardsOf.runs);
+    }
+
+    /**
+     * Returns true if linking the nodes in [from, to) in their order succeeds.
+     */
+    private boolean isInBitOrder(List<TrieNode<K>> nodes, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            if (compareBitOrder(nodes.get(i - 1).getKey(), nodes.get(i).getKey()) > 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    public K firstKey() {
-        return firstNode().getKey();
+    /**
+     * Links the keys of one shard, which are in bit order, below its first key. See
+     * {@link #loadParallel(List, ForkJoinPool)}.
+     */
+    private Run<K> linkShardInOrder(List<TrieNode<K>> nodes, int from, int to) {
+        // The first key stays below any bit index of the shard until it is grafted.
+        TrieNode<K> first = nodes.get(from);
+        first.setBitIndex(-1);
+        first.setRight(first);
+        first.setPredecessor(first);
+
+        Deque<TrieNode<K>> spine = new ArrayDeque<>();
+        spine.push(first);
+        Run<K> run = new Run<K>(from, to);
+        run.first = first;
+        run.last = first;
+        run.size = 1;
+        if (!linkRun(nodes, from + 1, to, spine, run)) {
+            throw new IllegalStateException("Key comparator is inconsistent with the bit order");
+        }
+        finishSpine(spine, first);
+        return run;
     }
 
-    public List<K> getSuggestions(K prefix, int numOfSuggestions) {
-        ArrayList<K> suggestions = new ArrayList<>();
-        TrieNode<K> subtree = subtree(prefix);
-        TrieNode<K> curr = null;
-        if (subtree != null) {
-            curr = traverseLeft(subtree);
-            suggestions.add(curr.getKey());
-            numOfSuggestions--;
+    /**
+     * Links the first keys of the shards, each with its linked shard on the right.
+     */
+    private void graft(List<TrieNode<K>> nodes, List<Run<K>> runs) {
+        resetRoot();
+
+        Deque<TrieNode<K>> spine = new ArrayDeque<>();
+        TrieNode<K> previous = root;
+        // What the next first key gets on its left if nothing is popped: the shard of the previous one, or the
+        // previous key itself as an uplink.
+        TrieNode<K> collapsed = root;
+        boolean collapsedUplink = true;
+        int size = 0;
+
+        for (Run<K> run : runs) {
+            TrieNode<K> first = run.first;
+            if (first == null) {
+                // Shard 0, linked from the root.
+                run.last = root;
+                linkRun(nodes, run.from, run.to, spine, run);
+                previous = run.last;
+                collapsed = run.last;
+                size += run.size;
+                continue;
+            }
+
+            // The shards are in bit order, so this is a valid bit index which is set in the first key.
+            int bitIndex = bitIndex(first.getKey(), previous.getKey());
+            TrieNode<K> left = collapsed;
+            boolean uplink = collapsedUplink;
+            while (!spine.isEmpty() && spine.peek().getBitIndex() > bitIndex) {
+                left = spine.pop();
+                left.setMaxScore(Math.max(scoreOf(left.getLeft(), left), scoreOf(left.getRight(), left)));
+                uplink = false;
+            }
+
+            first.setBitIndex(bitIndex);
+            first.setLeft(left);
+            if (uplink) {
+                left.setPredecessor(first);
+            } else {
+                left.setParent(first);
+            }
+
+            TrieNode<K> parent = spine.isEmpty() ? root : spine.peek();
+            first.setParent(parent);
+            if (parent == root) {
+                root.setLeft(first);
+            } else {
+                parent.setRight(first);
+            }
+
+            spine.push(first);
+            previous = run.last;
+            collapsed = run.size > 1 ? first.getRight() : first;
+            collapsedUplink = run.size == 1;
+            size += run.size;
         }
 
-        while (numOfSuggestions >= 0 && curr != null) {
-            curr = nextKeyInSubtree(curr, subtree);
-            if (curr != null) {
-                suggestions.add(curr.getKey());
-                numOfSuggestions--;
+        finishSpine(spine, null);
+        this.size = size;
+    }
+
+    private int shardOf(K key) {
+        int shard = 0;
+        for (int i = 0; i < SHARD_BITS; i++) {
+            shard <<= 1;
+            if (isBitSet(key, i)) {
+                shard |= 1;
             }
         }
-        return suggestions;
+        return shard;
     }
 
-    public void put(K key) {
-        if (key == null) {
-            throw new NullPointerException("Key cannot be null");
+    /**
+     * Returns true if the first bits of the key are the bits of the prefix.
+     */
+    boolean isPrefix(K prefix, K key) {
+        int bitIndex = bitIndex(prefix, key);
+        return !TrieUtil.isValidBitIndex(bitIndex) || bitIndex >= lengthInBits(prefix);
+    }
+
+    /**
+     * Returns the nodes of all keys which are prefixes of the given key, in one descent. A prefix agrees with the key
+     * up to its length and continues with zeros, so it lies on the key's search path, or where that path turns right
+     * on a bit past its end, at the end of the left zeros from there.
+     */
+    List<TrieNode<K>> prefixNodesOf(K key) {
+        List<TrieNode<K>> nodes = new ArrayList<>();
+        if (!root.isEmpty() && isPrefix(root.getKey(), key)) {
+            nodes.add(root);
         }
 
-        int lengthInBits = lengthInBits(key);
+        TrieNode<K> current = root.getLeft();
+        TrieNode<K> path = root;
+        while (current.getBitIndex() > path.getBitIndex()) {
+            path = current;
+            if (!isBitSet(key, current.getBitIndex())) {
+                current = current.getLeft();
+                continue;
+            }
 
-        // Key with zero bits have to be root node
-        if (lengthInBits == 0) {
-            if (root.isEmpty()) {
-                incrementSize();
+            TrieNode<K> zeros = current.getLeft();
+            TrieNode<K> from = current;
+            while (zeros.getBitIndex() > from.getBitIndex()) {
+                from = zeros;
+                zeros = zeros.getLeft();
             }
-            root.setKey(key);
-            return;
+            addIfPrefix(nodes, zeros, key);
+            current = current.getRight();
         }
+        addIfPrefix(nodes, current, key);
+        return nodes;
+    }
 
-        TrieNode<K> nearest = getNearestNodeForKey(key);
-        if (compareKeys(key, nearest.getKey())) {
-            if (nearest.isEmpty()) {
-                incrementSize();
-            }
-            nearest.setKey(key);
-            return;
+    private void addIfPrefix(List<TrieNode<K>> nodes, TrieNode<K> node, K key) {
+        if (node != root && !node.isEmpty() && isPrefix(node.getKey(), key)) {
+            nodes.add(node);
         }
+    }
 
-        int bitIndex = bitIndex(key, nearest.getKey());
-        if (!TrieUtil.isOutOfBoundsIndex(bitIndex)) {
-            if (TrieUtil.isValidBitIndex(bitIndex)) {
-                TrieNode<K> newEntry = new TrieNode<K>(key, bitIndex);
-                addTrieNode(newEntry);
-                incrementSize();
-            } else if (TrieUtil.isNullBitKey(bitIndex)) {
-                // Root key goes here
-                if (root.isEmpty()) {
-                    incrementSize();
-                }
-                root.setKey(key);
-            }
+    KeyComparator<K> keyComparator() {
+        return keyComp;
+    }
+
+    /**
+     * Compares two keys by the first bit that is different in them.
+     */
+    int compareBitOrder(K key, K other) {
+        int bitIndex = bitIndex(key, other);
+        if (!TrieUtil.isValidBitIndex(bitIndex)) {
+            return 0;
         }
+        return isBitSet(key, bitIndex) ? 1 : -1;
     }
 
     /**
-     * It finds out the subtree with the given prefix if exist. We stop the lookup if h.bitIndex > lengthInBits.
+     * It finds out the subtree with the given prefix if exist. We stop the lookup if h.bitIndex >= lengthInBits.
      */
     private TrieNode<K> subtree(K prefix) {
+        return lookup(null, prefix).entry;
+    }
+
+    /**
+     * Looks up the subtree of the prefix. If the lookup of a shorter prefix of it is given, the descent continues
+     * where that one stopped instead of at the root.
+     */
+    Lookup<K> lookup(Lookup<K> from, K prefix) {
         int lengthInBits = lengthInBits(prefix);
 
         TrieNode<K> current = root.getLeft();
         TrieNode<K> path = root;
+        int visited = 0;
+        if (from != null) {
+            // No key has the shorter prefix, so none has this one.
+            if (from.entry == null) {
+                return new Lookup<K>(from.path, from.current, null, lengthInBits);
+            }
+            current = from.current;
+            path = from.path;
+        }
+
         while (true) {
-            if (current.getBitIndex() <= path.getBitIndex() || lengthInBits < current.getBitIndex()) {
+            if (current.getBitIndex() <= path.getBitIndex() || lengthInBits <= current.getBitIndex()) {
                 break;
             }
 
             path = current;
+            visited++;
             if (!isBitSet(prefix, current.getBitIndex())) {
                 current = current.getLeft();
             } else {
@@ -105,6 +1124,16 @@ public class PatriciaTrie<K> {
             }
         }
 
+        if (metrics != null) {
+            metrics.lookup(visited);
+        }
+        return new Lookup<K>(path, current, entry(prefix, path, current), lengthInBits);
+    }
+
+    /**
+     * Returns the entry of the subtree where the descent for the prefix stopped, or null if no key has the prefix.
+     */
+    private TrieNode<K> entry(K prefix, TrieNode<K> path, TrieNode<K> current) {
         // Make sure the entry is valid for a subtree.
         TrieNode<K> entry = current.isEmpty() ? path : current;
 
@@ -117,17 +1146,12 @@ public class PatriciaTrie<K> {
         // there's nothing.
         // (this prevents returning the whole subtree if root has an empty
         // string and we want to lookup empty things)
+        int lengthInBits = lengthInBits(prefix);
         if (entry == root && lengthInBits(entry.getKey()) < lengthInBits) {
             return null;
         }
 
-        // Found key's length-th bit differs from our key
-        // which means it cannot be the prefix...
-        if (isBitSet(prefix, lengthInBits) != isBitSet(entry.getKey(), lengthInBits)) {
-            return null;
-        }
-
-        // ... or there are less than 'length' equal bits
+        // There are less than 'length' equal bits
         int bitIndex = bitIndex(prefix, entry.getKey());
         if (bitIndex >= 0 && bitIndex < lengthInBits) {
             return null;
@@ -211,85 +1235,112 @@ public class PatriciaTrie<K> {
         }
     }
 
+    /**
+     * Returns the key after previous within the tree, starting the search at start. Where the search continues in a
+     * right subtree, it restarts the loop on that subtree instead of calling itself, so the stack stays flat however
+     * the trie is shaped.
+     */
     private TrieNode<K> nextTrieNode(TrieNode<K> start, TrieNode<K> previous, TrieNode<K> tree) {
-
         TrieNode<K> current = start;
+        int restarts = 0;
 
-        // Only look at the left if this was a recursive or
-        // the first check, otherwise we know we've already looked
-        // at the left.
-        if (previous == null || start != previous.getPredecessor()) {
-            while (!current.getLeft().isEmpty()) {
-                // stop traversing if we've already
-                // returned the left of this node.
-                if (previous == current.getLeft()) {
-                    break;
-                }
-
-                if (isValidUplink(current.getLeft(), current)) {
-                    return current.getLeft();
+        while (true) {
+            // Only look at the left if this was a restart or
+            // the first check, otherwise we know we've already looked
+            // at the left.
+            if (previous == null || current != previous.getPredecessor()) {
+                while (!current.getLeft().isEmpty()) {
+                    // stop traversing if we've already
+                    // returned the left of this node.
+                    if (previous == current.getLeft()) {
+                        break;
+                    }
+
+                    if (isValidUplink(current.getLeft(), current)) {
+                        return current.getLeft();
+                    }
+
+                    current = current.getLeft();
                 }
+            }
 
-                current = current.getLeft();
+            // If there's no data at all, exit.
+            if (current.isEmpty()) {
+                return null;
             }
-        }
 
-        // If there's no data at all, exit.
-        if (current.isEmpty()) {
-            return null;
-        }
+            // If we've already returned the left, and the immediate right is null,
+            // there's only one entry in the Trie which is stored at the root.
+            if (current.getRight() == null) {
+                return null;
+            }
 
-        // If we've already returned the left, and the immediate right is null,
-        // there's only one entry in the Trie which is stored at the root.
-        if (current.getRight() == null) {
-            return null;
-        }
+            // If nothing is valid on the left, try the right.
+            if (previous != current.getRight()) {
+                // See if it immediately is valid.
+                if (isValidUplink(current.getRight(), current)) {
+                    return current.getRight();
+                }
 
-        // If nothing is valid on the left, try the right.
-        if (previous != current.getRight()) {
-            // See if it immediately is valid.
-            if (isValidUplink(current.getRight(), current)) {
-                return current.getRight();
+                // Must search on the right's side if it wasn't initially valid.
+                current = current.getRight();
+                restarted(++restarts);
+                continue;
             }
 
-            // Must search on the right's side if it wasn't initially valid.
-            return nextTrieNode(current.getRight(), previous, tree);
-        }
+            // Neither left nor right are valid, find the first parent
+            // whose child did not come from the right & traverse it.
+            while (current == current.getParent().getRight()) {
+                // If we're going to traverse to above the subtree, stop.
+                if (current == tree) {
+                    return null;
+                }
 
-        // Neither left nor right are valid, find the first parent
-        // whose child did not come from the right & traverse it.
-        while (current == current.getParent().getRight()) {
-            // If we're going to traverse to above the subtree, stop.
+                current = current.getParent();
+            }
+
+            // If we're on the top of the subtree, we can't go any higher.
             if (current == tree) {
                 return null;
             }
 
-            current = current.getParent();
-        }
+            // If there's no right, the parent must be root, so we're done.
+            if (current.getParent().getRight() == null) {
+                return null;
+            }
 
-        // If we're on the top of the subtree, we can't go any higher.
-        if (current == tree) {
-            return null;
-        }
+            // If the parent's right points to itself, we've found one.
+            if (previous != current.getParent().getRight()
+                    && isValidUplink(current.getParent().getRight(), current.getParent())) {
+                return current.getParent().getRight();
+            }
 
-        // If there's no right, the parent must be root, so we're done.
-        if (current.getParent().getRight() == null) {
-            return null;
-        }
+            // If the parent's right is itself, there can't be any more nodes.
+            if (current.getParent().getRight() == current.getParent()) {
+                return null;
+            }
 
-        // If the parent's right points to itself, we've found one.
-        if (previous != current.getParent().getRight()
-                && isValidUplink(current.getParent().getRight(), current.getParent())) {
-            return current.getParent().getRight();
+            // We need to traverse down the parent's right's path.
+            current = current.getParent().getRight();
+            restarted(++restarts);
         }
+    }
 
-        // If the parent's right is itself, there can't be any more nodes.
-        if (current.getParent().getRight() == current.getParent()) {
-            return null;
+    private void restarted(int restarts) {
+        if (metrics != null) {
+            metrics.iteration(restarts);
         }
+    }
 
-        // We need to traverse down the parent's right's path.
-        return nextTrieNode(current.getParent().getRight(), previous, tree);
+    /**
+     * Returns the number of nodes above the given one.
+     */
+    private int depthOf(TrieNode<K> node) {
+        int depth = 0;
+        for (TrieNode<K> current = node; current != root; current = current.getParent()) {
+            depth++;
+        }
+        return depth;
     }
 
     /**
@@ -360,7 +1411,7 @@ public class PatriciaTrie<K> {
         return KeyComparator.NULL_BIT_KEY;
     }
 
-    private boolean compareKeys(K key, K other) {
+    boolean compareKeys(K key, K other) {
         if (key == null) {
             return (other == null);
         } else if (other == null) {
@@ -373,4 +1424,369 @@ public class PatriciaTrie<K> {
     private void incrementSize() {
         size++;
     }
+
+
+    /**
+     * An entry of the best-first search in {@link #getFuzzySuggestions(Object, int, int)}. The row holds the edit
+     * distances of the query prefixes to the first depth chars of the node's keys, best the smallest distance of
+     * the whole query to any of these char prefixes, and bound the smallest distance any key below can have.
+     */
+    private static final class FuzzyCandidate<K> implements Comparable<FuzzyCandidate<K>> {
+
+        private final TrieNode<K> node;
+        private final boolean external;
+        private final int depth;
+        private final int[] row;
+        private final int best;
+        private final int bound;
+        private final long sequence;
+
+        private FuzzyCandidate(TrieNode<K> node, boolean external, int depth, int[] row, int best, int bound,
+                long sequence) {
+            this.node = node;
+            this.external = external;
+            this.depth = depth;
+            this.row = row;
+            this.best = best;
+            this.bound = bound;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(FuzzyCandidate<K> other) {
+            if (bound != other.bound) {
+                return bound < other.bound ? -1 : 1;
+            }
+            if (external != other.external) {
+                return external ? -1 : 1;
+            }
+            // Go depth first among subtrees with the same bound, which reaches their keys quickly and in bit order.
+            return Long.compare(other.sequence, sequence);
+        }
+    }
+
+    /**
+     * Walks the subtree of a prefix with {@link PatriciaTrie#nextKeyInSubtree(TrieNode, TrieNode)}.
+     */
+    private class SuggestionIterator implements Iterator<K> {
+
+        private final TrieNode<K> subtree;
+        private TrieNode<K> next;
+
+        private SuggestionIterator(K prefix) {
+            this(lookup(null, prefix));
+        }
+
+        private SuggestionIterator(Lookup<K> lookup) {
+            TrieNode<K> entry = lookup.entry;
+            if (entry == null) {
+                subtree = null;
+                next = null;
+            } else if (entry == root || entry.getBitIndex() < lookup.lengthInBits) {
+                // The prefix ended on an uplink, the key of the entry is the only match.
+                subtree = null;
+                next = entry;
+            } else {
+                subtree = entry;
+                next = traverseLeft(entry);
+            }
+        }
+
+        /**
+         * Moves the iterator behind the given key.
+         */
+        private void skipTo(K after) {
+            TrieNode<K> node = getNode(after);
+            if (node != null && subtree != null && isInSubtree(node)) {
+                next = nextKeyInSubtree(node, subtree);
+                return;
+            }
+
+            while (next != null && compareBitOrder(next.getKey(), after) <= 0) {
+                advance();
+            }
+        }
+
+        private boolean isInSubtree(TrieNode<K> node) {
+            int bitIndex = bitIndex(next.getKey(), node.getKey());
+            return !TrieUtil.isValidBitIndex(bitIndex) || bitIndex >= subtree.getBitIndex();
+        }
+
+        private void advance() {
+            next = subtree == null ? null : nextKeyInSubtree(next, subtree);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public K next() {
+            return nextNode().getKey();
+        }
+
+        private TrieNode<K> nextNode() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            TrieNode<K> node = next;
+            advance();
+            return node;
+        }
+    }
+
+    /**
+     * Where the descent for a prefix stopped and the entry of its subtree, null if no key has the prefix. A longer
+     * prefix starting with the same bits can continue the descent from here.
+     */
+    static final class Lookup<K> {
+
+        private final TrieNode<K> path;
+        private final TrieNode<K> current;
+        private final TrieNode<K> entry;
+        private final int lengthInBits;
+
+        private Lookup(TrieNode<K> path, TrieNode<K> current, TrieNode<K> entry, int lengthInBits) {
+            this.path = path;
+            this.current = current;
+            this.entry = entry;
+            this.lengthInBits = lengthInBits;
+        }
+    }
+
+    /**
+     * Keys linked by one pass. For a shard, from and to delimit its keys and first is the key it is linked below,
+     * or null if the shard is only sorted.
+     */
+    private static final class Run<K> {
+
+        private final int from;
+        private final int to;
+        private TrieNode<K> first;
+        private TrieNode<K> last;
+        private int size;
+
+        private Run(TrieNode<K> last) {
+            this(0, 0);
+            this.last = last;
+        }
+
+        private Run(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private class ShardTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 1 << 14;
+
+        private final List<TrieNode<K>> nodes;
+        private final int[] shardOf;
+        private final int from;
+        private final int to;
+
+        private ShardTask(List<TrieNode<K>> nodes, int[] shardOf, int from, int to) {
+            this.nodes = nodes;
+            this.shardOf = shardOf;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    shardOf[i] = shardOf(nodes.get(i).getKey());
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new ShardTask(nodes, shardOf, from, middle), new ShardTask(nodes, shardOf, middle, to));
+        }
+    }
+
+    private enum Phase {
+        CHECK, SORT_KEYS, SORT_BIT_ORDER, LINK
+    }
+
+    /**
+     * The shards of a parallel load and the per shard results of its phases.
+     */
+    private class Shards {
+
+        private final List<TrieNode<K>> nodes;
+        private final int[] offsets;
+        private final int[] shards;
+        private final boolean[] inBitOrder;
+        private final List<Run<K>> runs;
+
+        private Shards(List<TrieNode<K>> nodes, int[] offsets, int[] shards) {
+            this.nodes = nodes;
+            this.offsets = offsets;
+            this.shards = shards;
+            this.inBitOrder = new boolean[shards.length];
+            this.runs = new ArrayList<>(Collections.<Run<K>> nCopies(shards.length, null));
+        }
+
+        private void run(Phase phase, int index) {
+            int shard = shards[index];
+            int from = offsets[shard];
+            int to = offsets[shard + 1];
+            switch (phase) {
+            case CHECK:
+                inBitOrder[index] = PatriciaTrie.this.isInBitOrder(nodes, from, to);
+                break;
+            case SORT_KEYS:
+                nodes.subList(from, to).sort(new Comparator<TrieNode<K>>() {
+                    @Override
+                    public int compare(TrieNode<K> node, TrieNode<K> other) {
+                        return keyComp.compare(node.getKey(), other.getKey());
+                    }
+                });
+                inBitOrder[index] = PatriciaTrie.this.isInBitOrder(nodes, from, to);
+                break;
+            case SORT_BIT_ORDER:
+                nodes.subList(from, to).sort(new Comparator<TrieNode<K>>() {
+                    @Override
+                    public int compare(TrieNode<K> node, TrieNode<K> other) {
+                        return compareBitOrder(node.getKey(), other.getKey());
+                    }
+                });
+                inBitOrder[index] = true;
+                break;
+            case LINK:
+                // Shard 0 is linked from the root while grafting.
+                runs.set(index, shard == 0 ? new Run<K>(from, to) : linkShardInOrder(nodes, from, to));
+                break;
+            }
+        }
+
+        private boolean areInBitOrder() {
+            for (boolean ordered : inBitOrder) {
+                if (!ordered) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns true if sorting all keys by the key comparator gives the shards in order.
+         */
+        private boolean areInKeyOrder() {
+            for (int i = 1; i < shards.length; i++) {
+                K last = nodes.get(offsets[shards[i - 1] + 1] - 1).getKey();
+                K first = nodes.get(offsets[shards[i]]).getKey();
+                if (keyComp.compare(last, first) >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private class ShardsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Phase phase;
+        private final Shards shards;
+        private final int from;
+        private final int to;
+
+        private ShardsTask(Phase phase, Shards shards, int from, int to) {
+            this.phase = phase;
+            this.shards = shards;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                shards.run(phase, from);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new ShardsTask(phase, shards, from, middle), new ShardsTask(phase, shards, middle, to));
+        }
+    }
+
+    /**
+     * Collects keys for {@link PatriciaTrie#bulkLoad(KeyComparator, Iterator)}-style construction.
+     */
+    public static class Builder<K> {
+
+        private final KeyComparator<K> keyComp;
+        private final List<TrieNode<K>> nodes = new ArrayList<>();
+
+        public Builder(KeyComparator<K> keyComp) {
+            this.keyComp = keyComp;
+        }
+
+        public Builder<K> add(K key) {
+            return add(key, 0L);
+        }
+
+        public Builder<K> add(K key, long score) {
+            TrieNode<K> node = new TrieNode<K>(TrieUtil.notNull(key, "Key cannot be null"), 0);
+            node.setScore(score);
+            nodes.add(node);
+            return this;
+        }
+
+        public PatriciaTrie<K> build() {
+            PatriciaTrie<K> trie = new PatriciaTrie<>(keyComp);
+            trie.load(nodes);
+            nodes.clear();
+            return trie;
+        }
+
+        /**
+         * Builds the same trie as {@link #build()}, sorting and linking on the threads of the given pool. A pool with
+         * a single thread builds sequentially, sharding would only add work then.
+         */
+        public PatriciaTrie<K> build(ForkJoinPool pool) {
+            PatriciaTrie<K> trie = new PatriciaTrie<>(keyComp);
+            if (nodes.isEmpty() || pool.getParallelism() <= 1) {
+                trie.load(nodes);
+            } else {
+                trie.loadParallel(nodes, pool);
+            }
+            nodes.clear();
+            return trie;
+        }
+    }
+
+    /**
+     * An entry of the best-first search in {@link #getTopSuggestions(Object, int)}. External candidates are keys,
+     * the others are subtrees bounded by their cached max score.
+     */
+    private final class Candidate implements Comparable<Candidate> {
+
+        private final TrieNode<K> node;
+        private final boolean external;
+        private final long score;
+
+        private Candidate(TrieNode<K> node, boolean external, long score) {
+            this.node = node;
+            this.external = external;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (score != other.score) {
+                return score > other.score ? -1 : 1;
+            }
+            // Candidates cover disjoint ranges of keys and the key of a subtree's node lies within the subtree, so
+            // comparing these keys emits keys with the same score in bit order.
+            return compareBitOrder(node.getKey(), other.node.getKey());
+        }
+    }
 }
@@ -0,0 +1,312 @@
+package com.autocomplete.datatype;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Mutable crit-bit trie of primitive keys, the common part of {@link LongPatriciaTrie} and {@link IntPatriciaTrie}.
+ *
+ * Keys are handled as longs with the key's bits at the top, so an int key is shifted up by 32 bits, and compared
+ * unsigned, most significant bit first. Internal nodes are stored in three parallel int tables. A child is either an
+ * internal node (>= 0) or a key slot (~slot), and the subclass keeps the keys in a primitive array by slot. Both
+ * tables stay dense: removing a key moves the last key and the last internal node into the freed slots.
+ *
+ * Bit indexes grow along every path, so no path is longer than the key width. Lookups, inserts and removals walk
+ * one path and never allocate, apart from growing the tables.
+ */
+public abstract class PrimitivePatriciaTrie {
+
+    static final int NONE = Integer.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Key width in bits.
+     */
+    private final int width;
+
+    private int[] bitIndex = new int[INITIAL_CAPACITY];
+    private int[] left = new int[INITIAL_CAPACITY];
+    private int[] right = new int[INITIAL_CAPACITY];
+    private int root = NONE;
+    private int size = 0;
+
+    PrimitivePatriciaTrie(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Returns the key in the given slot, shifted to the top of a long.
+     */
+    abstract long keyAt(int slot);
+
+    abstract void setKeyAt(int slot, long key);
+
+    /**
+     * Makes room for at least the given number of keys.
+     */
+    abstract void ensureKeyCapacity(int capacity);
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        root = NONE;
+        size = 0;
+    }
+
+    final boolean containsKey(long key) {
+        return size > 0 && keyAt(nearestSlot(key)) == key;
+    }
+
+    /**
+     * Adds the key, returns false if it was already in the trie.
+     */
+    final boolean insert(long key) {
+        if (size == 0) {
+            ensureKeyCapacity(1);
+            setKeyAt(0, key);
+            root = ~0;
+            size = 1;
+            return true;
+        }
+
+        long nearest = keyAt(nearestSlot(key));
+        if (nearest == key) {
+            return false;
+        }
+
+        ensureKeyCapacity(size + 1);
+        ensureNodeCapacity(size);
+        int slot = size;
+        int node = size - 1;
+        int critBit = Long.numberOfLeadingZeros(nearest ^ key);
+        setKeyAt(slot, key);
+
+        // The new node goes above the first node which tests a later bit.
+        int parent = NONE;
+        int current = root;
+        while (current >= 0 && bitIndex[current] < critBit) {
+            parent = current;
+            current = isBitSet(key, bitIndex[current]) ? right[current] : left[current];
+        }
+
+        bitIndex[node] = critBit;
+        if (isBitSet(key, critBit)) {
+            left[node] = current;
+            right[node] = ~slot;
+        } else {
+            left[node] = ~slot;
+            right[node] = current;
+        }
+        setChild(parent, key, node);
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the key, returns false if it wasn't in the trie.
+     */
+    final boolean delete(long key) {
+        if (size == 0) {
+            return false;
+        }
+
+        int grandParent = NONE;
+        int parent = NONE;
+        int current = root;
+        while (current >= 0) {
+            grandParent = parent;
+            parent = current;
+            current = isBitSet(key, bitIndex[current]) ? right[current] : left[current];
+        }
+
+        int slot = ~current;
+        if (keyAt(slot) != key) {
+            return false;
+        }
+        if (parent == NONE) {
+            clear();
+            return true;
+        }
+
+        // The sibling takes the place of the parent.
+        setChild(grandParent, key, isBitSet(key, bitIndex[parent]) ? left[parent] : right[parent]);
+        size--;
+        moveSlot(size, slot);
+        moveNode(size - 1, parent);
+        return true;
+    }
+
+    /**
+     * Returns the highest child whose keys all start with the first bits of the prefix, or NONE if there are no such
+     * keys. The prefix is shifted to the top of a long like the keys.
+     */
+    final int subtree(long prefix, int bits) {
+        if (bits < 0 || bits > width) {
+            throw new IllegalArgumentException("Prefix length must be between 0 and " + width + ": " + bits);
+        }
+        if (size == 0) {
+            return NONE;
+        }
+
+        int current = root;
+        while (current >= 0 && bitIndex[current] < bits) {
+            current = isBitSet(prefix, bitIndex[current]) ? right[current] : left[current];
+        }
+
+        // All keys below share the bits before the bit index, any of them can be checked.
+        long key = keyAt(firstSlot(current));
+        if (bits > 0 && (key ^ prefix) >>> (Long.SIZE - bits) != 0) {
+            return NONE;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the number of keys below the given child.
+     */
+    final int count(int child) {
+        if (child == NONE) {
+            return 0;
+        } else if (child < 0) {
+            return 1;
+        }
+        return count(left[child]) + count(right[child]);
+    }
+
+    final int root() {
+        return size == 0 ? NONE : root;
+    }
+
+    final int left(int node) {
+        return left[node];
+    }
+
+    final int right(int node) {
+        return right[node];
+    }
+
+    private int nearestSlot(long key) {
+        int current = root;
+        while (current >= 0) {
+            current = isBitSet(key, bitIndex[current]) ? right[current] : left[current];
+        }
+        return ~current;
+    }
+
+    private int firstSlot(int child) {
+        int current = child;
+        while (current >= 0) {
+            current = left[current];
+        }
+        return ~current;
+    }
+
+    /**
+     * Points the child of the parent on the key's side, or the root if there is no parent, to the given child.
+     */
+    private void setChild(int parent, long key, int child) {
+        if (parent == NONE) {
+            root = child;
+        } else if (isBitSet(key, bitIndex[parent])) {
+            right[parent] = child;
+        } else {
+            left[parent] = child;
+        }
+    }
+
+    /**
+     * Moves the key in slot from to the unused slot to.
+     */
+    private void moveSlot(int from, int to) {
+        if (from == to) {
+            return;
+        }
+
+        long key = keyAt(from);
+        int parent = NONE;
+        int current = root;
+        while (current != ~from) {
+            parent = current;
+            current = isBitSet(key, bitIndex[current]) ? right[current] : left[current];
+        }
+        setChild(parent, key, ~to);
+        setKeyAt(to, key);
+    }
+
+    /**
+     * Moves the internal node from to the unused node to.
+     */
+    private void moveNode(int from, int to) {
+        if (from == to) {
+            return;
+        }
+
+        // Find the node's parent by the path of any key below it.
+        long key = keyAt(firstSlot(from));
+        int parent = NONE;
+        int current = root;
+        while (current != from) {
+            parent = current;
+            current = isBitSet(key, bitIndex[current]) ? right[current] : left[current];
+        }
+        setChild(parent, key, to);
+        bitIndex[to] = bitIndex[from];
+        left[to] = left[from];
+        right[to] = right[from];
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+        if (capacity > bitIndex.length) {
+            int newCapacity = Math.max(capacity, bitIndex.length * 2);
+            bitIndex = Arrays.copyOf(bitIndex, newCapacity);
+            left = Arrays.copyOf(left, newCapacity);
+            right = Arrays.copyOf(right, newCapacity);
+        }
+    }
+
+    private static boolean isBitSet(long key, int bitIndex) {
+        return (key << bitIndex) < 0;
+    }
+
+    /**
+     * Walks the keys below a child in ascending order with an explicit stack, one slot per call. A cursor can be
+     * reset and reused, so walking allocates nothing.
+     */
+    abstract class SlotCursor {
+
+        // One right child per level, plus the start.
+        private final int[] stack = new int[width + 1];
+        private int top = 0;
+
+        final void reset(int child) {
+            top = 0;
+            if (child != NONE) {
+                stack[top++] = child;
+            }
+        }
+
+        public boolean hasNext() {
+            return top > 0;
+        }
+
+        final int nextSlot() {
+            if (top == 0) {
+                throw new NoSuchElementException();
+            }
+
+            int current = stack[--top];
+            while (current >= 0) {
+                stack[top++] = right[current];
+                current = left[current];
+            }
+            return ~current;
+        }
+    }
+}
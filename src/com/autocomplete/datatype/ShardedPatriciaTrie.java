@@ -0,0 +1,236 @@
+package com.autocomplete.datatype;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.autocomplete.comparators.KeyComparator;
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * Trie split by key ranges into several {@link PatriciaTrie} shards, for key sets too large for a single trie.
+ * Shard i holds the keys from split point i - 1 (inclusive) up to split point i (exclusive), in the order of the key
+ * comparator. That order has to be the bit order of the keys, as it is for {@link StringKeyComparator}.
+ *
+ * A prefix query only goes to the shards whose range overlaps the keys with the prefix: the shard the prefix itself
+ * falls into and the following shards whose lower split point starts with the prefix. Since the ranges are
+ * disjoint and ordered, suggestions in key order are read from these shards one after another, top suggestions are
+ * merged by score.
+ */
+public class ShardedPatriciaTrie<K> {
+
+    private final KeyComparator<K> keyComp;
+    private final List<K> splitPoints;
+    private final List<PatriciaTrie<K>> shards;
+
+    /**
+     * Creates empty shards for the ranges between the given split points, which have to be in ascending order.
+     */
+    public ShardedPatriciaTrie(KeyComparator<K> keyComp, List<K> splitPoints) {
+        this.keyComp = keyComp;
+        this.splitPoints = new ArrayList<>(splitPoints);
+        for (int i = 0; i < this.splitPoints.size(); i++) {
+            K splitPoint = TrieUtil.notNull(this.splitPoints.get(i), "Split point cannot be null");
+            if (i > 0 && keyComp.compare(this.splitPoints.get(i - 1), splitPoint) >= 0) {
+                throw new IllegalArgumentException("Split points must be ascending: " + splitPoint);
+            }
+        }
+
+        this.shards = new ArrayList<>(this.splitPoints.size() + 1);
+        for (int i = 0; i <= this.splitPoints.size(); i++) {
+            shards.add(new PatriciaTrie<K>(keyComp));
+        }
+    }
+
+    private ShardedPatriciaTrie(KeyComparator<K> keyComp, List<K> splitPoints, List<PatriciaTrie<K>> shards) {
+        this.keyComp = keyComp;
+        this.splitPoints = splitPoints;
+        this.shards = shards;
+    }
+
+    /**
+     * Builds a trie of the given keys split into at most shardCount shards of about the same size. The split
+     * points are taken from the sorted keys.
+     */
+    public static <K> ShardedPatriciaTrie<K> bulkLoad(KeyComparator<K> keyComp, Iterator<K> keys, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+
+        List<K> sorted = new ArrayList<>();
+        while (keys.hasNext()) {
+            sorted.add(TrieUtil.notNull(keys.next(), "Key cannot be null"));
+        }
+        Collections.sort(sorted, keyComp);
+
+        List<K> splitPoints = new ArrayList<>();
+        List<PatriciaTrie<K>> shards = new ArrayList<>();
+        int from = 0;
+        for (int shard = 1; shard <= shardCount; shard++) {
+            int to = shard == shardCount ? sorted.size() : (int) ((long) sorted.size() * shard / shardCount);
+            // Equal keys have to stay in the same shard.
+            while (to > from && to < sorted.size() && keyComp.compare(sorted.get(to - 1), sorted.get(to)) == 0) {
+                to++;
+            }
+            if (to == from) {
+                continue;
+            }
+
+            if (!shards.isEmpty()) {
+                splitPoints.add(sorted.get(from));
+            }
+            shards.add(PatriciaTrie.bulkLoad(keyComp, sorted.subList(from, to).iterator()));
+            from = to;
+        }
+        if (shards.isEmpty()) {
+            shards.add(new PatriciaTrie<K>(keyComp));
+        }
+        return new ShardedPatriciaTrie<>(keyComp, splitPoints, shards);
+    }
+
+    public int size() {
+        int size = 0;
+        for (PatriciaTrie<K> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Returns the shard holding the range with the given index. Keys must only be added through this trie, so that
+     * they end up in the shard of their range.
+     */
+    public PatriciaTrie<K> shard(int index) {
+        return shards.get(index);
+    }
+
+    public void put(K key) {
+        shardFor(key).put(key);
+    }
+
+    public void put(K key, long score) {
+        shardFor(key).put(key, score);
+    }
+
+    public Long getScore(K key) {
+        return key == null ? null : shardFor(key).getScore(key);
+    }
+
+    public boolean remove(K key) {
+        return key != null && shardFor(key).remove(key);
+    }
+
+    /**
+     * Returns the first numOfSuggestions keys with the given prefix in key order, see
+     * {@link PatriciaTrie#getSuggestions(Object, int)}. The shards are asked one after another, only until enough
+     * keys were found.
+     */
+    public List<K> getSuggestions(K prefix, int numOfSuggestions) {
+        TrieUtil.notNull(prefix, "Prefix cannot be null");
+        ArrayList<K> suggestions = new ArrayList<>();
+        int last = lastShardOf(prefix);
+        for (int i = shardOf(prefix); i <= last && suggestions.size() < numOfSuggestions; i++) {
+            Iterator<K> iterator = shards.get(i).suggestionIterator(prefix);
+            while (suggestions.size() < numOfSuggestions && iterator.hasNext()) {
+                suggestions.add(iterator.next());
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns up to k keys with the given prefix, highest score first, see
+     * {@link PatriciaTrie#getTopSuggestions(Object, int)}. Every shard in range contributes its own top k, which are
+     * merged on a heap holding one cursor per shard.
+     */
+    public List<K> getTopSuggestions(K prefix, int k) {
+        TrieUtil.notNull(prefix, "Prefix cannot be null");
+        ArrayList<K> suggestions = new ArrayList<>();
+        int first = shardOf(prefix);
+        int last = lastShardOf(prefix);
+        if (first == last) {
+            return shards.get(first).getTopSuggestions(prefix, k);
+        }
+
+        PriorityQueue<Cursor<K>> queue = new PriorityQueue<>();
+        for (int i = first; i <= last; i++) {
+            List<TrieNode<K>> nodes = shards.get(i).getTopSuggestionNodes(prefix, k);
+            if (!nodes.isEmpty()) {
+                queue.add(new Cursor<K>(i, nodes));
+            }
+        }
+        while (suggestions.size() < k && !queue.isEmpty()) {
+            Cursor<K> cursor = queue.poll();
+            suggestions.add(cursor.node().getKey());
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns the index of the shard whose range contains the given key.
+     */
+    int shardOf(K key) {
+        int index = Collections.binarySearch(splitPoints, key, keyComp);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Returns the index of the last shard which can hold keys with the given prefix. Every later shard starts with a
+     * key beyond all keys with the prefix.
+     */
+    private int lastShardOf(K prefix) {
+        PatriciaTrie<K> trie = shards.get(0);
+        int last = shardOf(prefix);
+        while (last < splitPoints.size() && trie.isPrefix(prefix, splitPoints.get(last))) {
+            last++;
+        }
+        return last;
+    }
+
+    private PatriciaTrie<K> shardFor(K key) {
+        return shards.get(shardOf(TrieUtil.notNull(key, "Key cannot be null")));
+    }
+
+    /**
+     * Position in the top suggestions of one shard. Cursors are ordered by the score of their current key, ties go
+     * to the shard with the smaller keys.
+     */
+    private static final class Cursor<K> implements Comparable<Cursor<K>> {
+
+        private final int shard;
+        private final List<TrieNode<K>> nodes;
+        private int position = 0;
+
+        private Cursor(int shard, List<TrieNode<K>> nodes) {
+            this.shard = shard;
+            this.nodes = nodes;
+        }
+
+        private TrieNode<K> node() {
+            return nodes.get(position);
+        }
+
+        private boolean advance() {
+            return ++position < nodes.size();
+        }
+
+        @Override
+        public int compareTo(Cursor<K> other) {
+            long score = node().getScore();
+            long otherScore = other.node().getScore();
+            if (score != otherScore) {
+                return score > otherScore ? -1 : 1;
+            }
+            return Integer.compare(shard, other.shard);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.autocomplete.datatype;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Bounded cache of suggestion results in front of a {@link PatriciaTrie}.
+ *
+ * Results are cached per (prefix, limit) and evicted least recently used first once the total weight, one per
+ * entry plus one per cached key, exceeds the maximum. Keys added through {@link #put(Object)} or removed through
+ * {@link #remove(Object)} invalidate exactly the cached results they change: those of their prefixes which are not
+ * full, or whose last key does not sort before the key. Changing the trie directly bypasses the invalidation.
+ *
+ * The cached prefixes are indexed in a trie of their own, so a write only looks at the cached results of the
+ * prefixes of its key, found in one descent, however many results are cached.
+ *
+ * Prefixes are looked up by their hashCode, which has to be consistent with the key comparator as it is for String.
+ */
+public class SuggestionCache<K> {
+
+    private final PatriciaTrie<K> trie;
+    private final long maxWeight;
+    private final LinkedHashMap<Entry<K>, List<K>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The cached prefixes, the value of each node is the list of cached entries for its prefix.
+     */
+    private PatriciaMap<K, List<Entry<K>>> prefixes;
+
+    private long weight = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long invalidationCount = 0;
+
+    public SuggestionCache(PatriciaTrie<K> trie, long maxWeight) {
+        this.trie = trie;
+        this.maxWeight = maxWeight;
+        this.prefixes = new PatriciaMap<>(trie.keyComparator());
+    }
+
+    /**
+     * Returns the cached suggestions for the prefix, or looks them up and caches them. The returned list is
+     * unmodifiable.
+     */
+    public synchronized List<K> getSuggestions(K prefix, int numOfSuggestions) {
+        Entry<K> entry = new Entry<K>(trie, prefix, numOfSuggestions);
+        List<K> suggestions = entries.get(entry);
+        if (suggestions != null) {
+            hitCount++;
+            return suggestions;
+        }
+
+        missCount++;
+        suggestions = Collections.unmodifiableList(trie.getSuggestions(prefix, numOfSuggestions));
+        entry.suggestions = suggestions;
+        entries.put(entry, suggestions);
+        entriesOf(prefixes.putEntry(prefix)).add(entry);
+        weight += weightOf(suggestions);
+        evict();
+        return suggestions;
+    }
+
+    public synchronized void put(K key) {
+        boolean added = trie.getScore(key) == null;
+        trie.put(key);
+        if (added) {
+            invalidate(key, false);
+        }
+    }
+
+    public synchronized void put(K key, long score) {
+        boolean added = trie.getScore(key) == null;
+        trie.put(key, score);
+        if (added) {
+            invalidate(key, false);
+        }
+    }
+
+    public synchronized boolean remove(K key) {
+        boolean removed = trie.remove(key);
+        if (removed) {
+            invalidate(key, true);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all keys with the given prefix, dropping every cached result for a longer or shorter prefix.
+     */
+    public synchronized int removePrefix(K prefix) {
+        int removed = trie.removePrefix(prefix);
+        if (removed > 0) {
+            List<TrieNode<K>> nodes = prefixes.prefixNodesOf(prefix);
+            Iterator<TrieNode<K>> longer = prefixes.suggestionNodeIterator(prefix);
+            while (longer.hasNext()) {
+                nodes.add(longer.next());
+            }
+            for (Entry<K> entry : entriesOf(nodes)) {
+                invalidate(entry);
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void invalidateAll() {
+        invalidationCount += entries.size();
+        entries.clear();
+        prefixes = new PatriciaMap<>(trie.keyComparator());
+        weight = 0;
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized long invalidationCount() {
+        return invalidationCount;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Drops the cached results which a newly added key would be part of, or which a removed key was part of.
+     */
+    private void invalidate(K key, boolean removed) {
+        // A removed key can also be the last result itself.
+        int bound = removed ? 1 : 0;
+        for (Entry<K> entry : entriesOf(prefixes.prefixNodesOf(key))) {
+            List<K> suggestions = entry.suggestions;
+            if (suggestions.size() < entry.limit || (!suggestions.isEmpty()
+                    && trie.compareBitOrder(key, suggestions.get(suggestions.size() - 1)) < bound)) {
+                invalidate(entry);
+            }
+        }
+    }
+
+    private void invalidate(Entry<K> entry) {
+        if (entries.remove(entry) != null) {
+            unindex(entry);
+            weight -= weightOf(entry.suggestions);
+            invalidationCount++;
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry<K>> iterator = entries.keySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            Entry<K> entry = iterator.next();
+            iterator.remove();
+            unindex(entry);
+            weight -= weightOf(entry.suggestions);
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Drops the entry from the index of cached prefixes, and the prefix with its last entry.
+     */
+    private void unindex(Entry<K> entry) {
+        MapNode<K> node = prefixes.getNode(entry.prefix);
+        List<Entry<K>> cached = entriesOf(node);
+        cached.remove(entry);
+        if (cached.isEmpty()) {
+            prefixes.remove(entry.prefix);
+        }
+    }
+
+    /**
+     * Returns the entries of the given prefix nodes. They are collected before any is invalidated, since removing
+     * a prefix from the index can move other prefixes between nodes.
+     */
+    private static <K> List<Entry<K>> entriesOf(List<TrieNode<K>> nodes) {
+        List<Entry<K>> cached = new ArrayList<>();
+        for (TrieNode<K> node : nodes) {
+            cached.addAll(entriesOf(node));
+        }
+        return cached;
+    }
+
+    private static <K> List<Entry<K>> entriesOf(TrieNode<K> node) {
+        MapNode<K> mapNode = (MapNode<K>) node;
+        List<Entry<K>> cached = TrieUtil.cast(mapNode.getValue());
+        if (cached == null) {
+            cached = new ArrayList<>(1);
+            mapNode.setValue(cached);
+        }
+        return cached;
+    }
+
+    private static long weightOf(List<?> suggestions) {
+        return 1 + suggestions.size();
+    }
+
+    private static final class Entry<K> {
+
+        private final PatriciaTrie<K> trie;
+        private final K prefix;
+        private final int limit;
+
+        /**
+         * The cached results, set on the entry which is the key in the cache.
+         */
+        private List<K> suggestions;
+
+        private Entry(PatriciaTrie<K> trie, K prefix, int limit) {
+            this.trie = trie;
+            this.prefix = TrieUtil.notNull(prefix, "Prefix cannot be null");
+            this.limit = limit;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * prefix.hashCode() + limit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            } else if (!(o instanceof Entry<?>)) {
+                return false;
+            }
+
+            Entry<K> other = TrieUtil.cast(o);
+            return limit == other.limit && trie.compareKeys(prefix, other.prefix);
+        }
+    }
+}
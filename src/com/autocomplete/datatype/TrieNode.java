@@ -10,6 +10,8 @@ public class TrieNode<K> {
     private TrieNode<K> left;
     private TrieNode<K> right;
     private TrieNode<K> predecessor;
+    private long score;
+    private long maxScore;
 
     public TrieNode(K key, int bitIndex) {
         this.setBitIndex(bitIndex);
@@ -18,6 +20,8 @@ public class TrieNode<K> {
         this.setLeft(this);
         this.setRight(null);
         this.setPredecessor(this);
+        this.setScore(0L);
+        this.setMaxScore(Long.MIN_VALUE);
     }
 
     public boolean isEmpty() {
@@ -130,4 +134,50 @@ public class TrieNode<K> {
     public void setBitIndex(int bitIndex) {
         this.bitIndex = bitIndex;
     }
+
+    /**
+     * @return the score of the key held by this node
+     */
+    public long getScore() {
+        return score;
+    }
+
+    /**
+     * @param score the score to set
+     */
+    public void setScore(long score) {
+        this.score = score;
+    }
+
+    /**
+     * Highest score of any key below this node. Only meaningful on nodes which are reachable through a downlink.
+     * 
+     * @return the cached subtree max score
+     */
+    public long getMaxScore() {
+        return maxScore;
+    }
+
+    /**
+     * @param maxScore the maxScore to set
+     */
+    public void setMaxScore(long maxScore) {
+        this.maxScore = maxScore;
+    }
+
+    /**
+     * Drops the key held by this node and everything that belongs to it.
+     */
+    void clearEntry() {
+        setKey(null);
+        setScore(0L);
+    }
+
+    /**
+     * Takes over the key held by the given node and everything that belongs to it. Both nodes are of the same trie.
+     */
+    void copyEntry(TrieNode<K> from) {
+        setKey(from.getKey());
+        setScore(from.getScore());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.autocomplete.datatype;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.autocomplete.comparators.Utf8KeyComparator;
+
+/**
+ * Patricia trie over UTF-8 encoded keys. Prefixes can be looked up straight from the bytes of a request buffer,
+ * without decoding them into a String first.
+ */
+public class Utf8PatriciaTrie extends PatriciaTrie<byte[]> {
+
+    public Utf8PatriciaTrie() {
+        super(Utf8KeyComparator.UTF8);
+    }
+
+    public void put(String key) {
+        put(Utf8KeyComparator.encode(key));
+    }
+
+    public void put(String key, long score) {
+        put(Utf8KeyComparator.encode(key), score);
+    }
+
+    /**
+     * Returns the suggestions for the UTF-8 prefix in buffer[offset, offset + length).
+     */
+    public List<byte[]> getSuggestions(byte[] buffer, int offset, int length, int numOfSuggestions) {
+        return getSuggestions(Arrays.copyOfRange(buffer, offset, offset + length), numOfSuggestions);
+    }
+
+    /**
+     * Returns the suggestions for the given prefix, decoded into strings for display.
+     */
+    public List<String> getSuggestions(String prefix, int numOfSuggestions) {
+        List<byte[]> keys = getSuggestions(Utf8KeyComparator.encode(prefix), numOfSuggestions);
+        List<String> suggestions = new ArrayList<>(keys.size());
+        for (byte[] key : keys) {
+            suggestions.add(Utf8KeyComparator.decode(key));
+        }
+        return suggestions;
+    }
+}
@@ -0,0 +1,275 @@
+package com.autocomplete.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.autocomplete.datatype.ConcurrentPatriciaTrie;
+
+/**
+ * Tails an append-only delta log and applies its changes to a live {@link ConcurrentPatriciaTrie}.
+ *
+ * Every line of the log is one tab separated change, UTF-8 encoded:
+ *
+ * <pre>
+ * add    key          adds the key, an existing key keeps its score
+ * add    key  score   adds the key or updates its score
+ * score  key  score   same as add with a score
+ * remove key          removes the key
+ * </pre>
+ *
+ * Changes are applied in batches of at most maxBatchSize lines, each batch becomes visible to readers at once and
+ * readers never wait for it. A line is only read once it is terminated, so a writer may append in any chunk size. If
+ * the log is replaced by another file, or gets shorter than what was read so far, it is taken as rotated and read
+ * again from the start. Files are told apart by their file key, the inode on Unix, or by their creation time where
+ * the file system has no file keys. Malformed lines are counted and skipped.
+ *
+ * The ingestion lag of a batch is the time from the last modification of the log, as seen when the batch was read,
+ * until the batch was published.
+ */
+public class DeltaLogIngester implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ConcurrentPatriciaTrie<String> trie;
+    private final Path log;
+    private final int maxBatchSize;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long position = 0;
+    private Object fileId;
+    private ScheduledExecutorService scheduler;
+
+    private volatile long pendingBytes = 0;
+    private volatile long batchCount = 0;
+    private volatile long changeCount = 0;
+    private volatile long malformedCount = 0;
+    private volatile long failedPollCount = 0;
+    private volatile int lastBatchSize = 0;
+    private volatile int maxBatchSizeSeen = 0;
+    private volatile long lastLagMillis = 0;
+    private volatile long maxLagMillis = 0;
+
+    public DeltaLogIngester(ConcurrentPatriciaTrie<String> trie, Path log, int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size has to be positive: " + maxBatchSize);
+        }
+        this.trie = trie;
+        this.log = log;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Polls the log on a daemon thread at the given interval until closed.
+     */
+    public synchronized void start(long interval, TimeUnit unit) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Ingester is already started");
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "delta-log-ingester");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    poll();
+                } catch (IOException e) {
+                    failedPollCount++;
+                }
+            }
+        }, 0, interval, unit);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Applies all complete lines appended since the last poll and returns how many changes were applied. A missing
+     * log counts as empty.
+     */
+    public synchronized int poll() throws IOException {
+        FileChannel channel;
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(log, BasicFileAttributes.class);
+            channel = FileChannel.open(log, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        int applied = 0;
+        try {
+            Object id = fileIdOf(attributes);
+            if (!id.equals(currentFileId())) {
+                // Rotated while opening, the channel may be either file. Try again at the next poll.
+                return 0;
+            }
+            long size = channel.size();
+            if (!id.equals(fileId) || size < position) {
+                fileId = id;
+                position = 0;
+            }
+
+            ConcurrentPatriciaTrie<String>.Batch batch = trie.batch();
+            while (position < size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+
+                byte[] bytes = buffer.array();
+                int lineStart = 0;
+                for (int i = 0; i < read; i++) {
+                    if (bytes[i] != '\n') {
+                        continue;
+                    }
+
+                    add(batch, new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                    lineStart = i + 1;
+                    if (batch.size() == maxBatchSize) {
+                        applied += publish(batch, lastModified);
+                    }
+                }
+
+                if (lineStart == 0) {
+                    if (read < buffer.capacity()) {
+                        // The last line is not terminated yet.
+                        break;
+                    }
+                    buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                }
+                position += lineStart;
+            }
+
+            applied += publish(batch, lastModified);
+            pendingBytes = size - position;
+        } finally {
+            channel.close();
+        }
+        return applied;
+    }
+
+    /**
+     * Number of bytes in the log which have not been applied yet, as of the last poll. Includes an unterminated
+     * last line.
+     */
+    public long pendingBytes() {
+        return pendingBytes;
+    }
+
+    public long batchCount() {
+        return batchCount;
+    }
+
+    public long changeCount() {
+        return changeCount;
+    }
+
+    public long malformedCount() {
+        return malformedCount;
+    }
+
+    /**
+     * Number of background polls which failed with an I/O error. They are retried at the next interval.
+     */
+    public long failedPollCount() {
+        return failedPollCount;
+    }
+
+    public int lastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public int maxBatchSize() {
+        return maxBatchSizeSeen;
+    }
+
+    public long lastLagMillis() {
+        return lastLagMillis;
+    }
+
+    public long maxLagMillis() {
+        return maxLagMillis;
+    }
+
+    private Object currentFileId() throws IOException {
+        try {
+            return fileIdOf(Files.readAttributes(log, BasicFileAttributes.class));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static Object fileIdOf(BasicFileAttributes attributes) {
+        Object fileKey = attributes.fileKey();
+        return fileKey != null ? fileKey : attributes.creationTime();
+    }
+
+    private void add(ConcurrentPatriciaTrie<String>.Batch batch, String line) {
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        if (line.isEmpty()) {
+            return;
+        }
+
+        String[] fields = line.split("\t", -1);
+        String key = fields.length > 1 ? fields[1] : "";
+        try {
+            if (fields[0].equals("add") && fields.length == 2 && !key.isEmpty()) {
+                batch.put(key);
+            } else if ((fields[0].equals("add") || fields[0].equals("score")) && fields.length == 3
+                    && !key.isEmpty()) {
+                batch.put(key, Long.parseLong(fields[2].trim()));
+            } else if (fields[0].equals("remove") && fields.length == 2 && !key.isEmpty()) {
+                batch.remove(key);
+            } else {
+                malformedCount++;
+            }
+        } catch (NumberFormatException e) {
+            malformedCount++;
+        }
+    }
+
+    private int publish(ConcurrentPatriciaTrie<String>.Batch batch, long lastModified) {
+        int size = batch.size();
+        if (size == 0) {
+            return 0;
+        }
+
+        batch.apply();
+        long lag = Math.max(System.currentTimeMillis() - lastModified, 0);
+        batchCount++;
+        changeCount += size;
+        lastBatchSize = size;
+        maxBatchSizeSeen = Math.max(maxBatchSizeSeen, size);
+        lastLagMillis = lag;
+        maxLagMillis = Math.max(maxLagMillis, lag);
+        return size;
+    }
+}
@@ -3,30 +3,75 @@ package com.autocomplete.main;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.net.InetSocketAddress;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.CompactPatriciaTrie;
+import com.autocomplete.datatype.MappedPatriciaTrie;
 import com.autocomplete.datatype.PatriciaTrie;
+import com.autocomplete.server.SuggestionServer;
 
 public class TrieMain {
 
     private static final int MAX_RESULTS = 20;
 
+    private static final int QUEUE_CAPACITY = 1024;
+
+    /**
+     * With no arguments, reads a prefix from stdin and prints its suggestions from a trie built from data.txt. With
+     * a trie file, maps that file instead. With a trie file and a port, serves suggestions over HTTP from the mapped
+     * trie, see {@link SuggestionServer}.
+     */
     public static void main(String[] args) throws Exception {
         TrieMain main = new TrieMain();
 
-        PatriciaTrie<String> trie = main.createTrie();
+        if (args.length > 1) {
+            CompactPatriciaTrie trie = main.loadTrie(Paths.get(args[0]));
+            int threads = Runtime.getRuntime().availableProcessors();
+            SuggestionServer.enableNoDelay();
+            SuggestionServer server = new SuggestionServer(trie, new InetSocketAddress(Integer.parseInt(args[1])),
+                    threads, QUEUE_CAPACITY);
+            server.start();
+            System.out.println("Serving " + trie.size() + " keys on port " + server.getAddress().getPort() + " with "
+                    + threads + " workers");
+            return;
+        }
 
-        String input = main.getUserInput();
+        List<String> suggestions;
+        if (args.length > 0) {
+            CompactPatriciaTrie trie = main.loadTrie(Paths.get(args[0]));
+            suggestions = trie.getSuggestions(main.getUserInput(), MAX_RESULTS);
+        } else {
+            PatriciaTrie<String> trie = main.createTrie();
+            suggestions = trie.getSuggestions(main.getUserInput(), MAX_RESULTS);
+        }
 
-        List<String> suggestions = trie.getSuggestions(input, MAX_RESULTS);
         for (String suggestion : suggestions) {
             System.out.println(suggestion);
         }
     }
 
+    /**
+     * Maps the given trie file. If it doesn't exist yet, the trie is built from the data.txt file and written to it
+     * first, so later starts only have to map the file.
+     * 
+     * @return CompactPatriciaTrie
+     * @throws Exception
+     */
+    private CompactPatriciaTrie loadTrie(Path file) throws Exception {
+        if (!Files.exists(file)) {
+            createTrie().freeze().writeTo(file);
+        }
+        return MappedPatriciaTrie.open(file);
+    }
+
     /**
      * Get's the user input from command line
      * 
@@ -44,13 +89,13 @@ public class TrieMain {
     }
 
     /**
-     * Creates the Patricia Trie from the data.txt file
+     * Creates the Patricia Trie from the data.txt file, sorting and linking the keys on all cores
      * 
      * @return PatriciaTrie
      * @throws Exception
      */
     private PatriciaTrie<String> createTrie() throws Exception {
-        PatriciaTrie<String> trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        PatriciaTrie.Builder<String> builder = new PatriciaTrie.Builder<>(StringKeyComparator.CHAR);
         BufferedReader br = null;
         try {
 
@@ -62,13 +107,13 @@ public class TrieMain {
             while (line != null) {
                 line.trim();
                 if (!line.isEmpty()) {
-                    trie.put(line);
+                    builder.add(line);
                 }
                 line = br.readLine();
             }
         } finally {
             br.close();
         }
-        return trie;
+        return builder.build(ForkJoinPool.commonPool());
     }
 }
@@ -0,0 +1,39 @@
+package com.autocomplete.metrics;
+
+import com.autocomplete.comparators.KeyComparator;
+
+/**
+ * Key comparator which reports every bit test of the comparator it wraps to a metrics sink. Bit tests are counted
+ * here rather than in the trie, so that a trie built with the plain comparator doesn't pay for them.
+ */
+public class CountingKeyComparator<K> implements KeyComparator<K> {
+
+    private final KeyComparator<K> keyComp;
+    private final TrieMetrics metrics;
+
+    public CountingKeyComparator(KeyComparator<K> keyComp, TrieMetrics metrics) {
+        this.keyComp = keyComp;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int compare(K key, K other) {
+        return keyComp.compare(key, other);
+    }
+
+    @Override
+    public int lengthInBits(K key) {
+        return keyComp.lengthInBits(key);
+    }
+
+    @Override
+    public boolean isBitSet(K key, int bitIndex) {
+        metrics.bitTest();
+        return keyComp.isBitSet(key, bitIndex);
+    }
+
+    @Override
+    public int bitIndex(K key, K otherKey) {
+        return keyComp.bitIndex(key, otherKey);
+    }
+}
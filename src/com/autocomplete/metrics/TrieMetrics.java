@@ -0,0 +1,34 @@
+package com.autocomplete.metrics;
+
+/**
+ * Receives measurements from the hot paths of a {@link com.autocomplete.datatype.PatriciaTrie}. Implementations
+ * are called on the thread doing the work, so they should only record and return.
+ */
+public interface TrieMetrics {
+
+    /**
+     * A prefix lookup descended through the given number of nodes.
+     */
+    public void lookup(int nodesVisited);
+
+    /**
+     * A new key was linked below the given number of nodes.
+     */
+    public void insert(int pathLength);
+
+    /**
+     * Finding the next key of a subtree restarted its descent in a right subtree, for the given time in a row.
+     */
+    public void iteration(int restarts);
+
+    /**
+     * The key comparator tested one key bit.
+     */
+    public void bitTest();
+
+    /**
+     * A call to getSuggestions took the given time.
+     */
+    public void suggestions(long nanos);
+
+}
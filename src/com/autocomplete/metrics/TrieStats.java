@@ -0,0 +1,154 @@
+package com.autocomplete.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics sink which keeps a {@link Histogram} per measurement, and can be registered as an MBean.
+ */
+public class TrieStats implements TrieMetrics, TrieStatsMBean {
+
+    private final Histogram lookupNodes = new Histogram();
+    private final Histogram insertPath = new Histogram();
+    private final Histogram iterationRestarts = new Histogram();
+    private final Histogram suggestionsNanos = new Histogram();
+    private final LongAdder bitTests = new LongAdder();
+
+    /**
+     * Registers these stats with the platform MBean server under com.autocomplete:type=TrieStats,name=[name] and
+     * returns the object name.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("com.autocomplete:type=TrieStats,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public void lookup(int nodesVisited) {
+        lookupNodes.record(nodesVisited);
+    }
+
+    @Override
+    public void insert(int pathLength) {
+        insertPath.record(pathLength);
+    }
+
+    @Override
+    public void iteration(int restarts) {
+        iterationRestarts.record(restarts);
+    }
+
+    @Override
+    public void bitTest() {
+        bitTests.increment();
+    }
+
+    @Override
+    public void suggestions(long nanos) {
+        suggestionsNanos.record(nanos);
+    }
+
+    public Histogram lookupNodes() {
+        return lookupNodes;
+    }
+
+    public Histogram insertPath() {
+        return insertPath;
+    }
+
+    public Histogram iterationRestarts() {
+        return iterationRestarts;
+    }
+
+    public Histogram suggestionsNanos() {
+        return suggestionsNanos;
+    }
+
+    @Override
+    public long getLookupCount() {
+        return lookupNodes.count();
+    }
+
+    @Override
+    public double getLookupNodesMean() {
+        return lookupNodes.mean();
+    }
+
+    @Override
+    public long getLookupNodesMax() {
+        return lookupNodes.max();
+    }
+
+    @Override
+    public long getInsertCount() {
+        return insertPath.count();
+    }
+
+    @Override
+    public double getInsertPathMean() {
+        return insertPath.mean();
+    }
+
+    @Override
+    public long getInsertPathMax() {
+        return insertPath.max();
+    }
+
+    @Override
+    public long getIterationRestartCount() {
+        return iterationRestarts.count();
+    }
+
+    @Override
+    public long getIterationRestartsMax() {
+        return iterationRestarts.max();
+    }
+
+    @Override
+    public long getBitTestCount() {
+        return bitTests.sum();
+    }
+
+    @Override
+    public long getSuggestionsCount() {
+        return suggestionsNanos.count();
+    }
+
+    @Override
+    public double getSuggestionsMeanNanos() {
+        return suggestionsNanos.mean();
+    }
+
+    @Override
+    public long getSuggestionsP50Nanos() {
+        return suggestionsNanos.valueAtPercentile(50.0);
+    }
+
+    @Override
+    public long getSuggestionsP99Nanos() {
+        return suggestionsNanos.valueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getSuggestionsP999Nanos() {
+        return suggestionsNanos.valueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getSuggestionsMaxNanos() {
+        return suggestionsNanos.max();
+    }
+
+    @Override
+    public void reset() {
+        lookupNodes.reset();
+        insertPath.reset();
+        iterationRestarts.reset();
+        suggestionsNanos.reset();
+        bitTests.reset();
+    }
+}
@@ -0,0 +1,40 @@
+package com.autocomplete.metrics;
+
+/**
+ * JMX view of {@link TrieStats}. Latencies are in nanoseconds.
+ */
+public interface TrieStatsMBean {
+
+    public long getLookupCount();
+
+    public double getLookupNodesMean();
+
+    public long getLookupNodesMax();
+
+    public long getInsertCount();
+
+    public double getInsertPathMean();
+
+    public long getInsertPathMax();
+
+    public long getIterationRestartCount();
+
+    public long getIterationRestartsMax();
+
+    public long getBitTestCount();
+
+    public long getSuggestionsCount();
+
+    public double getSuggestionsMeanNanos();
+
+    public long getSuggestionsP50Nanos();
+
+    public long getSuggestionsP99Nanos();
+
+    public long getSuggestionsP999Nanos();
+
+    public long getSuggestionsMaxNanos();
+
+    public void reset();
+
+}
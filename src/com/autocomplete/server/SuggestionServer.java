@@ -0,0 +1,241 @@
+package com.autocomplete.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.autocomplete.datatype.CompactPatriciaTrie;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server answering suggestion requests from a shared read-only trie.
+ *
+ * <pre>
+ * GET /suggest?q=[prefix]&amp;n=[limit]
+ * </pre>
+ *
+ * answers with the suggestions as UTF-8 text, one per line. Requests are parsed and answered on a fixed pool of
+ * worker threads fed by a bounded queue. Connections are kept alive and pipelined requests are answered in order.
+ * When the queue is full, requests are answered right away with 503 and a Retry-After header instead of waiting, so
+ * that latency stays bounded under overload and clients see the back-pressure. The JDK server reads a request on the
+ * thread that runs its exchange, so rejected requests are answered on a few threads of their own. The server's
+ * dispatcher thread never reads one, and a client sending a slow or partial request can't hold up accepting others.
+ *
+ * Headers and body are written separately, so with Nagle's algorithm the body waits for the client's delayed ACK of
+ * the headers, about 40 ms per request. The JDK server only turns it off through the JVM-wide system property
+ * sun.net.httpserver.nodelay, which it reads when the first server is created. Launchers pass
+ * -Dsun.net.httpserver.nodelay=true or call {@link #enableNoDelay()} before creating a server.
+ */
+public class SuggestionServer {
+
+    public static final String PATH = "/suggest";
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 1000;
+
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private static final int REJECTION_THREADS = 2;
+
+    private final CompactPatriciaTrie trie;
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private final ThreadPoolExecutor rejections;
+
+    /**
+     * Set while a rejected request runs on a rejection thread.
+     */
+    private final ThreadLocal<Boolean> rejected = new ThreadLocal<>();
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * Turns off Nagle's algorithm for all HTTP servers of this JVM, unless the property is set already. Has no effect
+     * once a server was created.
+     */
+    public static void enableNoDelay() {
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+    }
+
+    /**
+     * Binds a server to the given address, port 0 picks a free port. The trie is shared by all workers, so it must
+     * not change while the server runs.
+     */
+    public SuggestionServer(CompactPatriciaTrie trie, InetSocketAddress address, int threads, int queueCapacity)
+            throws IOException {
+        this.trie = trie;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new WorkerFactory("suggestion-worker-"));
+        // A 503 is quick once its request is read, a slow client only holds up the rejections queued behind it.
+        this.rejections = new ThreadPoolExecutor(REJECTION_THREADS, REJECTION_THREADS, 1L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new WorkerFactory("suggestion-rejection-"));
+        rejections.allowCoreThreadTimeOut(true);
+        this.server = HttpServer.create(address, 0);
+        server.createContext(PATH, new SuggestHandler());
+        server.setExecutor(new Executor() {
+            @Override
+            public void execute(final Runnable exchange) {
+                try {
+                    workers.execute(exchange);
+                } catch (RejectedExecutionException e) {
+                    rejections.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            rejected.set(Boolean.TRUE);
+                            try {
+                                exchange.run();
+                            } finally {
+                                rejected.remove();
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to the given number of seconds for open exchanges and stops the workers.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        workers.shutdown();
+        rejections.shutdown();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Number of requests answered with suggestions.
+     */
+    public long requestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * Number of requests answered with 503 because the queue was full.
+     */
+    public long rejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    private class SuggestHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (rejected.get() != null) {
+                    rejectedCount.increment();
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    send(exchange, 503, "Server busy\n");
+                } else if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", "GET");
+                    send(exchange, 405, "Only GET is supported\n");
+                } else if (!PATH.equals(exchange.getRequestURI().getPath())) {
+                    send(exchange, 404, "Not found\n");
+                } else {
+                    suggest(exchange);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private void suggest(HttpExchange exchange) throws IOException {
+            String prefix = null;
+            int limit = DEFAULT_LIMIT;
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                for (String parameter : query.split("&")) {
+                    int equals = parameter.indexOf('=');
+                    String name = equals < 0 ? parameter : parameter.substring(0, equals);
+                    String value;
+                    try {
+                        value = equals < 0 ? "" : URLDecoder.decode(parameter.substring(equals + 1),
+                                StandardCharsets.UTF_8);
+                    } catch (IllegalArgumentException e) {
+                        send(exchange, 400, "Malformed escape in query\n");
+                        return;
+                    }
+                    if (name.equals("q")) {
+                        prefix = value;
+                    } else if (name.equals("n")) {
+                        limit = parseLimit(value);
+                    }
+                }
+            }
+            if (prefix == null || limit < 0) {
+                send(exchange, 400, "Expected q=[prefix] and optionally n=[0.." + MAX_LIMIT + "]\n");
+                return;
+            }
+
+            List<String> suggestions = trie.getSuggestions(prefix, limit);
+            StringBuilder body = new StringBuilder();
+            for (String suggestion : suggestions) {
+                body.append(suggestion).append('\n');
+            }
+            requestCount.increment();
+            send(exchange, 200, body.toString());
+        }
+
+        /**
+         * Returns the limit, or -1 if it is not a number in range.
+         */
+        private int parseLimit(String value) {
+            try {
+                int limit = Integer.parseInt(value);
+                return limit <= MAX_LIMIT ? limit : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        private void send(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+            if (bytes.length > 0) {
+                OutputStream out = exchange.getResponseBody();
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static class WorkerFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private WorkerFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.autocomplete.datatype;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongBinaryOperator;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * {@link AdaptivePatriciaTrie} against a {@link PatriciaTrie} of {@link StringKeyComparator#CHAR} keys under the
+ * same random operations. Keys are built from single chars, which give nodes of every child layout, and longer
+ * pieces, which give labels longer than the packed chars.
+ */
+public class AdaptivePatriciaTrieTest {
+
+    private static final String[] PIECES = { "a", "b", "c", "abcdefgh", "abcdexyz", "bcdefghijk", "é", "中" };
+    private static final int ROUNDS = 60;
+    private static final int STEPS = 1500;
+    private static final int MAX_EDITS = 2;
+
+    private static final LongBinaryOperator SUM = new LongBinaryOperator() {
+        @Override
+        public long applyAsLong(long score, long other) {
+            return score + other;
+        }
+    };
+
+    @Test
+    public void matchesPatriciaTrie() {
+        Random random = new Random(25);
+        for (int round = 0; round < ROUNDS; round++) {
+            AdaptivePatriciaTrie trie = new AdaptivePatriciaTrie();
+            PatriciaTrie<String> expected = new PatriciaTrie<>(StringKeyComparator.CHAR);
+            for (int step = 0; step < STEPS; step++) {
+                String key = key(random);
+                int operation = random.nextInt(20);
+                if (operation < 5) {
+                    trie.put(key);
+                    expected.put(key);
+                } else if (operation < 8) {
+                    long score = random.nextInt(20);
+                    trie.put(key, score);
+                    expected.put(key, score);
+                } else if (operation < 9) {
+                    long score = random.nextInt(5);
+                    assertEquals(expected.mergeScore(key, score, SUM), trie.mergeScore(key, score, SUM), key);
+                } else if (operation < 12) {
+                    assertEquals(expected.remove(key), trie.remove(key), key);
+                } else if (operation < 13) {
+                    String prefix = prefix(random, key);
+                    assertEquals(expected.removePrefix(prefix), trie.removePrefix(prefix), prefix);
+                } else if (operation < 14) {
+                    List<String> keys = Arrays.asList(key, key(random), key(random));
+                    assertEquals(expected.removeAll(keys), trie.removeAll(keys), key);
+                } else if (operation < 15 && random.nextInt(10) == 0) {
+                    final String removed = prefix(random, key);
+                    Predicate<String> filter = new Predicate<String>() {
+                        @Override
+                        public boolean test(String retained) {
+                            return !retained.contains(removed);
+                        }
+                    };
+                    assertEquals(expected.retainAll(filter), trie.retainAll(filter), removed);
+                } else {
+                    compareQueries(random, trie, expected, prefix(random, key));
+                }
+
+                assertEquals(expected.size(), trie.size());
+                assertEquals(expected.size() == 0 ? null : expected.firstKey(), trie.firstKey());
+                assertEquals(expected.getScore(key), trie.getScore(key), key);
+            }
+            compareQueries(random, trie, expected, "");
+        }
+    }
+
+    @Test
+    public void bulkLoadAndFreeze() {
+        Random random = new Random(26);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            keys.add(key(random));
+        }
+        PatriciaTrie<String> expected = PatriciaTrie.bulkLoad(StringKeyComparator.CHAR, keys.iterator());
+        AdaptivePatriciaTrie loaded = AdaptivePatriciaTrie.bulkLoad(keys.iterator());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(all(loaded), all(AdaptivePatriciaTrie.bulkLoad(keys.iterator(), pool)));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(expected.size(), loaded.size());
+        assertEquals(expected.getSuggestions("", Integer.MAX_VALUE), all(loaded));
+
+        FrozenPatriciaTrie frozen = loaded.freeze();
+        FrozenPatriciaTrie expectedFrozen = expected.freeze();
+        for (String prefix : Arrays.asList("", "a", "ab", "abcde", "abcdex", "bcd", "c中", "x")) {
+            assertEquals(expectedFrozen.getSuggestions(prefix, 20), frozen.getSuggestions(prefix, 20), prefix);
+        }
+    }
+
+    @Test
+    public void nullArguments() {
+        final AdaptivePatriciaTrie trie = new AdaptivePatriciaTrie();
+        assertThrows(NullPointerException.class, new Executable() {
+            @Override
+            public void execute() {
+                trie.put(null);
+            }
+        });
+        assertThrows(NullPointerException.class, new Executable() {
+            @Override
+            public void execute() {
+                trie.suggestionIterator("a", null);
+            }
+        });
+        assertThrows(NullPointerException.class, new Executable() {
+            @Override
+            public void execute() {
+                trie.removePrefix(null);
+            }
+        });
+    }
+
+    private static void compareQueries(Random random, AdaptivePatriciaTrie trie, PatriciaTrie<String> expected,
+            String prefix) {
+        int limit = random.nextInt(12);
+        assertEquals(expected.getSuggestions(prefix, limit), trie.getSuggestions(prefix, limit), prefix);
+        assertEquals(expected.getTopSuggestions(prefix, limit), trie.getTopSuggestions(prefix, limit), prefix);
+        assertEquals(expected.suggestionStream(prefix).collect(Collectors.toList()),
+                trie.suggestionStream(prefix).collect(Collectors.toList()), prefix);
+
+        String after = key(random);
+        assertEquals(list(expected.suggestionIterator(prefix, after)), list(trie.suggestionIterator(prefix, after)),
+                prefix + " " + after);
+        List<String> matches = expected.getSuggestions(prefix, Integer.MAX_VALUE);
+        if (!matches.isEmpty()) {
+            after = matches.get(random.nextInt(matches.size()));
+            assertEquals(list(expected.suggestionIterator(prefix, after)),
+                    list(trie.suggestionIterator(prefix, after)), prefix + " " + after);
+        }
+
+        List<String> prefixes = Arrays.asList(prefix, prefix + "a", "", prefix + "b", prefix);
+        assertEquals(expected.getSuggestionsBatch(prefixes, limit), trie.getSuggestionsBatch(prefixes, limit));
+
+        int maxEdits = random.nextInt(MAX_EDITS + 1);
+        List<String> fuzzy = fuzzySuggestions(all(trie), prefix, maxEdits);
+        assertEquals(fuzzy.subList(0, Math.min(limit, fuzzy.size())),
+                trie.getFuzzySuggestions(prefix, maxEdits, limit), prefix);
+        assertEquals(new TreeSet<>(expected.getFuzzySuggestions(prefix, maxEdits, Integer.MAX_VALUE)),
+                new TreeSet<>(fuzzy), prefix);
+    }
+
+    /**
+     * Returns the keys within maxEdits of the query, closest first and keys at the same distance in key order. The
+     * distance of a key is the smallest edit distance of any of its prefixes to the query.
+     */
+    private static List<String> fuzzySuggestions(List<String> keys, String query, int maxEdits) {
+        final TreeMap<String, Integer> distances = new TreeMap<>();
+        for (String key : keys) {
+            int[] row = new int[query.length() + 1];
+            for (int j = 0; j < row.length; j++) {
+                row[j] = j;
+            }
+            int distance = row[query.length()];
+            for (int i = 0; i < key.length(); i++) {
+                int[] next = new int[row.length];
+                next[0] = row[0] + 1;
+                for (int j = 1; j < row.length; j++) {
+                    int cost = query.charAt(j - 1) == key.charAt(i) ? 0 : 1;
+                    next[j] = Math.min(Math.min(row[j] + 1, next[j - 1] + 1), row[j - 1] + cost);
+                }
+                row = next;
+                distance = Math.min(distance, row[query.length()]);
+            }
+            if (distance <= maxEdits) {
+                distances.put(key, distance);
+            }
+        }
+
+        List<String> suggestions = new ArrayList<>(distances.keySet());
+        Collections.sort(suggestions, new Comparator<String>() {
+            @Override
+            public int compare(String key, String other) {
+                int order = Integer.compare(distances.get(key), distances.get(other));
+                return order != 0 ? order : key.compareTo(other);
+            }
+        });
+        return suggestions;
+    }
+
+    private static List<String> all(AdaptivePatriciaTrie trie) {
+        return trie.getSuggestions("", Integer.MAX_VALUE);
+    }
+
+    private static List<String> list(Iterator<String> iterator) {
+        List<String> keys = new ArrayList<>();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+        }
+        return keys;
+    }
+
+    private static String prefix(Random random, String key) {
+        return key.substring(0, random.nextInt(key.length() + 1));
+    }
+
+    /**
+     * Returns up to three pieces, which are mostly single chars and otherwise one of the longer pieces, or a char
+     * out of a wide range now and then.
+     */
+    private static String key(Random random) {
+        StringBuilder key = new StringBuilder();
+        for (int i = random.nextInt(4); i > 0; i--) {
+            int piece = random.nextInt(PIECES.length + 4);
+            if (piece < PIECES.length) {
+                key.append(PIECES[piece]);
+            } else if (piece < PIECES.length + 3) {
+                key.append((char) ('a' + random.nextInt(26)));
+            } else {
+                key.append((char) ('a' + random.nextInt(300)));
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,199 @@
+package com.autocomplete.datatype;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * Sessions typing into a {@link ConcurrentPatriciaTrie} while it is written, between keystrokes and from another
+ * thread.
+ */
+public class CompletionSessionTest {
+
+    private static final int ROUNDS = 200;
+    private static final int STEPS = 300;
+    private static final int STABLE_KEYS = 200;
+    private static final int QUERIES = 5000;
+
+    /**
+     * Appends, backspaces and clears mixed with puts, removes and batches, checked against a {@link TreeMap} after
+     * every step.
+     */
+    @Test
+    public void writesBetweenKeystrokes() {
+        Random random = new Random(16);
+        for (int round = 0; round < ROUNDS; round++) {
+            ConcurrentPatriciaTrie<String> trie = new ConcurrentPatriciaTrie<>(StringKeyComparator.CHAR);
+            TreeMap<String, Long> expected = new TreeMap<>();
+            CompletionSession session = new CompletionSession(trie);
+            for (int step = 0; step < STEPS; step++) {
+                int operation = random.nextInt(12);
+                if (operation < 4) {
+                    session.append((char) ('a' + random.nextInt(3)));
+                } else if (operation < 6) {
+                    assertEquals(!session.prefix().isEmpty(), session.backspace());
+                } else if (operation < 7) {
+                    session.clear();
+                } else if (operation < 9) {
+                    String key = key(random);
+                    long score = random.nextInt(20);
+                    trie.put(key, score);
+                    expected.put(key, score);
+                } else if (operation < 11) {
+                    String key = key(random);
+                    trie.remove(key);
+                    expected.remove(key);
+                } else {
+                    ConcurrentPatriciaTrie<String>.Batch batch = trie.batch();
+                    for (int i = random.nextInt(5); i > 0; i--) {
+                        String key = key(random);
+                        if (random.nextBoolean()) {
+                            batch.put(key, 0L);
+                            expected.put(key, 0L);
+                        } else {
+                            batch.remove(key);
+                            expected.remove(key);
+                        }
+                    }
+                    batch.apply();
+                }
+
+                String prefix = session.prefix();
+                List<String> matches = new ArrayList<>();
+                for (String key : expected.tailMap(prefix, true).keySet()) {
+                    if (!key.startsWith(prefix)) {
+                        break;
+                    }
+                    matches.add(key);
+                }
+                int limit = random.nextInt(10);
+                assertEquals(matches.subList(0, Math.min(limit, matches.size())), session.getSuggestions(limit),
+                        prefix);
+                List<String> top = PatriciaTrieRemovalTest.topSuggestions(expected, matches);
+                assertEquals(top.subList(0, Math.min(limit, top.size())), session.getTopSuggestions(limit), prefix);
+            }
+        }
+    }
+
+    /**
+     * An iterator stays on the trie as of the call that returned it.
+     */
+    @Test
+    public void iteratorKeepsItsSnapshot() {
+        ConcurrentPatriciaTrie<String> trie = new ConcurrentPatriciaTrie<>(StringKeyComparator.CHAR);
+        trie.put("ab");
+        trie.put("abc");
+        CompletionSession session = new CompletionSession(trie);
+        session.append("ab");
+        Iterator<String> iterator = session.suggestionIterator();
+        trie.remove("abc");
+        trie.put("abd");
+        assertEquals(Arrays.asList("ab", "abc"), list(iterator));
+        assertEquals(Arrays.asList("ab", "abd"), list(session.suggestionIterator()));
+    }
+
+    /**
+     * A writer thread adds and removes keys ending in 'z', while a session types and deletes over keys of 'a'
+     * and 'b' which are never removed. Every answer has to be sorted, match the prefix and hold all the stable keys
+     * with it.
+     */
+    @Test
+    public void concurrentWriter() throws InterruptedException {
+        final ConcurrentPatriciaTrie<String> trie = new ConcurrentPatriciaTrie<>(StringKeyComparator.CHAR);
+        Random random = new Random(17);
+        TreeMap<String, Long> stable = new TreeMap<>();
+        for (int i = 0; i < STABLE_KEYS; i++) {
+            String key = key(random).replace('c', 'b');
+            trie.put(key);
+            stable.put(key, 0L);
+        }
+
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Random writes = new Random(18);
+                try {
+                    while (!done.get()) {
+                        String key = key(writes) + 'z';
+                        if (writes.nextBoolean()) {
+                            trie.put(key, writes.nextInt(20));
+                        } else {
+                            trie.remove(key);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        writer.start();
+
+        try {
+            CompletionSession session = new CompletionSession(trie);
+            for (int i = 0; i < QUERIES; i++) {
+                if (random.nextInt(3) > 0 || session.prefix().isEmpty()) {
+                    session.append((char) ('a' + random.nextInt(2)));
+                } else {
+                    session.backspace();
+                }
+                if (session.prefix().length() > 4) {
+                    session.clear();
+                }
+
+                String prefix = session.prefix();
+                List<String> suggestions = session.getSuggestions(Integer.MAX_VALUE);
+                List<String> stableMatches = new ArrayList<>();
+                for (int j = 0; j < suggestions.size(); j++) {
+                    String key = suggestions.get(j);
+                    assertTrue(key.startsWith(prefix), key);
+                    assertTrue(j == 0 || suggestions.get(j - 1).compareTo(key) < 0, key);
+                    if (stable.containsKey(key)) {
+                        stableMatches.add(key);
+                    }
+                }
+                List<String> expected = new ArrayList<>();
+                for (String key : stable.tailMap(prefix, true).keySet()) {
+                    if (!key.startsWith(prefix)) {
+                        break;
+                    }
+                    expected.add(key);
+                }
+                assertEquals(expected, stableMatches, prefix);
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+        assertEquals(null, failure.get());
+    }
+
+    private static List<String> list(Iterator<String> iterator) {
+        List<String> keys = new ArrayList<>();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+        }
+        return keys;
+    }
+
+    private static String key(Random random) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 1 + random.nextInt(5); i > 0; i--) {
+            key.append((char) ('a' + random.nextInt(3)));
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package com.autocomplete.datatype;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * Readers running against writers which replace whole generations of keys in single batches. Every generation is
+ * added in one batch which also removes the generation two before it, so a consistent snapshot holds one or two
+ * consecutive, complete generations per writer.
+ */
+public class ConcurrentPatriciaTrieStressTest {
+
+    private static final int WRITERS = 2;
+    private static final int READERS = 3;
+    private static final int GENERATIONS = 2000;
+    private static final int KEYS_PER_GENERATION = 50;
+
+    @Test
+    public void readersSeeConsistentSnapshots() throws InterruptedException {
+        final ConcurrentPatriciaTrie<String> trie = new ConcurrentPatriciaTrie<>(StringKeyComparator.CHAR);
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            final String namespace = namespace(w);
+            writers.add(start(failure, new Runnable() {
+                @Override
+                public void run() {
+                    for (int generation = 0; generation < GENERATIONS; generation++) {
+                        ConcurrentPatriciaTrie<String>.Batch batch = trie.batch();
+                        for (int i = 0; i < KEYS_PER_GENERATION; i++) {
+                            batch.put(key(namespace, generation, i), generation);
+                            if (generation >= 2) {
+                                batch.remove(key(namespace, generation - 2, i));
+                            }
+                        }
+                        batch.apply();
+                    }
+                }
+            }));
+        }
+
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(start(failure, new Runnable() {
+                @Override
+                public void run() {
+                    while (writing.get() && failure.get() == null) {
+                        for (int w = 0; w < WRITERS; w++) {
+                            checkSuggestions(trie, namespace(w));
+                            checkTopSuggestions(trie, namespace(w));
+                        }
+                        assertEquals(0, trie.size() % KEYS_PER_GENERATION, "size " + trie.size());
+                    }
+                }
+            }));
+        }
+
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+
+        for (int w = 0; w < WRITERS; w++) {
+            assertEquals(2 * KEYS_PER_GENERATION, trie.getSuggestions(namespace(w), Integer.MAX_VALUE).size());
+        }
+    }
+
+    /**
+     * One snapshot in key order: complete generations, at most two and consecutive.
+     */
+    private static void checkSuggestions(ConcurrentPatriciaTrie<String> trie, String namespace) {
+        List<String> keys = trie.getSuggestions(namespace, Integer.MAX_VALUE);
+        assertEquals(0, keys.size() % KEYS_PER_GENERATION, namespace + " holds partial generations: " + keys.size());
+        assertTrue(keys.size() <= 2 * KEYS_PER_GENERATION, namespace + " holds " + keys.size() + " keys");
+
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(key(namespace, generationOf(keys.get(i - i % KEYS_PER_GENERATION)), i % KEYS_PER_GENERATION),
+                    keys.get(i));
+            if (i > 0) {
+                assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0, "out of order at " + keys.get(i));
+            }
+        }
+        if (keys.size() == 2 * KEYS_PER_GENERATION) {
+            assertEquals(generationOf(keys.get(0)) + 1, generationOf(keys.get(KEYS_PER_GENERATION)));
+        }
+    }
+
+    /**
+     * The newest generation has the highest score, so the top keys are exactly that generation in key order.
+     */
+    private static void checkTopSuggestions(ConcurrentPatriciaTrie<String> trie, String namespace) {
+        List<String> top = trie.getTopSuggestions(namespace, KEYS_PER_GENERATION);
+        if (top.isEmpty()) {
+            return;
+        }
+        assertEquals(KEYS_PER_GENERATION, top.size());
+        int generation = generationOf(top.get(0));
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(key(namespace, generation, i), top.get(i));
+        }
+        // A later snapshot, the generation may be gone but never rescored.
+        Long score = trie.getScore(top.get(0));
+        assertTrue(score == null || score == generation, top.get(0) + " has score " + score);
+    }
+
+    private static Thread start(final AtomicReference<Throwable> failure, final Runnable task) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static String namespace(int writer) {
+        return "w" + writer + "/";
+    }
+
+    private static String key(String namespace, int generation, int index) {
+        return String.format("%s%06d/%03d", namespace, generation, index);
+    }
+
+    private static int generationOf(String key) {
+        return Integer.parseInt(key.substring(key.indexOf('/') + 1, key.lastIndexOf('/')));
+    }
+}
@@ -0,0 +1,140 @@
+package com.autocomplete.datatype;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import com.autocomplete.comparators.NormalizingKeyComparator;
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * {@link InfixIndex} against a {@link TreeMap} from the normalized text of every indexed suffix to the keys it comes
+ * from, with random word length and words per key limits.
+ */
+public class InfixIndexTest {
+
+    private static final String ALPHABET = "aAbé -";
+    private static final int ROUNDS = 150;
+    private static final int STEPS = 1500;
+
+    @Test
+    public void wordsOfKeys() {
+        PatriciaTrie<String> primary = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        for (String key : Arrays.asList("New York", "York", "Yorkshire pudding", "new york new york", "Café de Flore")) {
+            primary.put(key);
+        }
+        InfixIndex index = new InfixIndex(primary);
+        // Keys whose suffixes have the same text come in the order they were indexed.
+        assertEquals(Arrays.asList("New York", "York", "new york new york", "Yorkshire pudding"),
+                index.getSuggestions("york", 10));
+        assertEquals(Arrays.asList("Café de Flore"), index.getSuggestions("CAFE", 10));
+        assertEquals(Arrays.asList("Yorkshire pudding"), index.getSuggestions("pud", 10));
+        assertEquals(Arrays.asList("New York", "new york new york"), index.getSuggestions("new y", 10));
+    }
+
+    @Test
+    public void suffixesMatchTreeMap() {
+        Random random = new Random(4);
+        for (int round = 0; round < ROUNDS; round++) {
+            int minWordLength = 1 + random.nextInt(2);
+            int maxWordsPerKey = random.nextBoolean() ? Integer.MAX_VALUE : 1 + random.nextInt(3);
+            TreeSet<String> keys = new TreeSet<>();
+            for (int i = random.nextInt(50); i > 0; i--) {
+                keys.add(key(random));
+            }
+            PatriciaTrie<String> primary = new PatriciaTrie<>(StringKeyComparator.CHAR);
+            TreeMap<String, LinkedHashSet<String>> expected = new TreeMap<>();
+            for (String key : keys) {
+                primary.put(key);
+                index(expected, key, minWordLength, maxWordsPerKey);
+            }
+            InfixIndex index = new InfixIndex(primary, InfixIndex.NOT_LETTER_OR_DIGIT, minWordLength, maxWordsPerKey);
+
+            for (int step = 0; step < STEPS; step++) {
+                String key = key(random);
+                int operation = random.nextInt(4);
+                if (operation == 0) {
+                    index.put(key);
+                    if (keys.add(key)) {
+                        index(expected, key, minWordLength, maxWordsPerKey);
+                    }
+                } else if (operation == 1) {
+                    boolean removed = keys.remove(key);
+                    if (removed) {
+                        for (int start : wordStarts(key, minWordLength, maxWordsPerKey)) {
+                            String suffix = NormalizingKeyComparator.normalize(key.substring(start));
+                            expected.get(suffix).remove(key);
+                            if (expected.get(suffix).isEmpty()) {
+                                expected.remove(suffix);
+                            }
+                        }
+                    }
+                    assertEquals(removed, index.remove(key), key);
+                } else {
+                    String prefix = key.substring(0, random.nextInt(key.length() + 1));
+                    String normalizedPrefix = NormalizingKeyComparator.normalize(prefix);
+                    int limit = random.nextInt(15);
+                    LinkedHashSet<String> matches = new LinkedHashSet<>();
+                    for (String suffix : expected.tailMap(normalizedPrefix, true).keySet()) {
+                        if (!suffix.startsWith(normalizedPrefix)) {
+                            break;
+                        }
+                        matches.addAll(expected.get(suffix));
+                    }
+                    List<String> suggestions = new ArrayList<>(matches);
+                    assertEquals(suggestions.subList(0, Math.min(limit, suggestions.size())),
+                            index.getSuggestions(prefix, limit), prefix);
+                }
+                assertEquals(keys.size(), index.getPrimary().size());
+                assertEquals(expected.size(), index.suffixCount());
+            }
+        }
+    }
+
+    private static void index(TreeMap<String, LinkedHashSet<String>> expected, String key, int minWordLength,
+            int maxWordsPerKey) {
+        for (int start : wordStarts(key, minWordLength, maxWordsPerKey)) {
+            String suffix = NormalizingKeyComparator.normalize(key.substring(start));
+            LinkedHashSet<String> suffixKeys = expected.get(suffix);
+            if (suffixKeys == null) {
+                suffixKeys = new LinkedHashSet<>();
+                expected.put(suffix, suffixKeys);
+            }
+            suffixKeys.add(key);
+        }
+    }
+
+    private static List<Integer> wordStarts(String key, int minWordLength, int maxWordsPerKey) {
+        List<Integer> starts = new ArrayList<>();
+        int i = 0;
+        while (i < key.length() && starts.size() < maxWordsPerKey) {
+            while (i < key.length() && !Character.isLetterOrDigit(key.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < key.length() && Character.isLetterOrDigit(key.charAt(i))) {
+                i++;
+            }
+            if (i - start >= minWordLength) {
+                starts.add(start);
+            }
+        }
+        return starts;
+    }
+
+    private static String key(Random random) {
+        StringBuilder key = new StringBuilder();
+        for (int i = random.nextInt(7); i > 0; i--) {
+            key.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,142 @@
+package com.autocomplete.datatype;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.autocomplete.comparators.NormalizingKeyComparator;
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * {@link NormalizedPatriciaTrie} and {@link NormalizingKeyComparator} against a {@link TreeMap} from normalized words
+ * to their variants. Keys mix cases, accents, a ligature and the sharp
+ * s, which only have their case folded.
+ */
+public class NormalizedPatriciaTrieTest {
+
+    private static final String ALPHABET = "aAáÁeEéÉcCçÇzZßﬁ ÿŸ";
+    private static final int ROUNDS = 30;
+    private static final int STEPS = 2000;
+    private static final int COMPARISONS = 200000;
+
+    @Test
+    public void variantsShareAWord() {
+        NormalizedPatriciaTrie trie = new NormalizedPatriciaTrie();
+        for (String key : Arrays.asList("Café", "cafe", "CAFE", "café", "ＣＡＦＥ", "Ångström", "angstrom", "cab")) {
+            trie.put(key);
+        }
+        assertEquals(8, trie.size());
+        assertEquals(Arrays.asList("Café", "cafe", "CAFE", "café", "ＣＡＦＥ"), trie.getVariants("CaFe"));
+        assertEquals(Arrays.asList("Ångström", "angstrom"), trie.getVariants("ANGSTRÖM"));
+        assertEquals(Arrays.asList("cab", "Café", "cafe"), trie.getSuggestions("CA", 3));
+    }
+
+    @Test
+    public void comparatorFollowsNormalizedStrings() {
+        NormalizingKeyComparator<String> comparator = NormalizingKeyComparator.FOLDED;
+        Random random = new Random(1);
+        for (int i = 0; i < COMPARISONS; i++) {
+            String key = key(random);
+            String other = key(random);
+            String normalizedKey = NormalizingKeyComparator.normalize(key);
+            String normalizedOther = NormalizingKeyComparator.normalize(other);
+            assertEquals(Integer.signum(normalizedKey.compareTo(normalizedOther)),
+                    Integer.signum(comparator.compare(key, other)), key + " " + other);
+            assertEquals(StringKeyComparator.CHAR.bitIndex(normalizedKey, normalizedOther),
+                    comparator.bitIndex(key, other), key + " " + other);
+            int bit = random.nextInt(comparator.lengthInBits(key) + 8);
+            assertEquals(StringKeyComparator.CHAR.isBitSet(normalizedKey, bit), comparator.isBitSet(key, bit), key);
+        }
+    }
+
+    @Test
+    public void variantsMatchTreeMap() {
+        Random random = new Random(2);
+        for (int round = 0; round < ROUNDS; round++) {
+            NormalizedPatriciaTrie trie = new NormalizedPatriciaTrie();
+            TreeMap<String, LinkedHashSet<String>> expected = new TreeMap<>();
+            TreeMap<String, Long> scores = new TreeMap<>();
+            int size = 0;
+            for (int step = 0; step < STEPS; step++) {
+                String key = key(random);
+                String word = NormalizingKeyComparator.normalize(key);
+                LinkedHashSet<String> variants = expected.get(word);
+                int operation = random.nextInt(6);
+                if (operation < 3) {
+                    if (variants == null) {
+                        variants = new LinkedHashSet<>();
+                        expected.put(word, variants);
+                        scores.put(word, 0L);
+                    }
+                    if (variants.add(key)) {
+                        size++;
+                    }
+                    if (operation == 2) {
+                        long score = random.nextInt(20);
+                        trie.put(key, score);
+                        scores.put(word, score);
+                    } else {
+                        trie.put(key);
+                    }
+                } else if (operation < 4) {
+                    boolean removed = variants != null && variants.remove(key);
+                    if (removed) {
+                        size--;
+                        if (variants.isEmpty()) {
+                            expected.remove(word);
+                            scores.remove(word);
+                        }
+                    }
+                    assertEquals(removed, trie.remove(key), key);
+                } else {
+                    String prefix = key.substring(0, random.nextInt(key.length() + 1));
+                    String normalizedPrefix = NormalizingKeyComparator.normalize(prefix);
+                    int limit = random.nextInt(20);
+                    List<String> words = new ArrayList<>();
+                    for (String match : expected.tailMap(normalizedPrefix, true).keySet()) {
+                        if (!match.startsWith(normalizedPrefix)) {
+                            break;
+                        }
+                        words.add(match);
+                    }
+                    assertEquals(variants(expected, words, limit), trie.getSuggestions(prefix, limit), prefix);
+                    List<String> top = PatriciaTrieRemovalTest.topSuggestions(scores, words);
+                    assertEquals(variants(expected, top, limit), trie.getTopSuggestions(prefix, limit), prefix);
+                }
+
+                assertEquals(size, trie.size());
+                variants = expected.get(word);
+                assertEquals(variants != null && variants.contains(key), trie.contains(key), key);
+                assertEquals(variants == null ? new ArrayList<String>() : new ArrayList<>(variants),
+                        trie.getVariants(key), key);
+            }
+        }
+    }
+
+    /**
+     * Returns the variants of the given words in order, at most limit.
+     */
+    private static List<String> variants(Map<String, LinkedHashSet<String>> expected, List<String> words, int limit) {
+        List<String> variants = new ArrayList<>();
+        for (String word : words) {
+            variants.addAll(expected.get(word));
+        }
+        return variants.subList(0, Math.min(limit, variants.size()));
+    }
+
+    private static String key(Random random) {
+        StringBuilder key = new StringBuilder();
+        for (int i = random.nextInt(5); i > 0; i--) {
+            key.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return key.toString();
+    }
+}
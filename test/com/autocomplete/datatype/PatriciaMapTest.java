@@ -0,0 +1,114 @@
+package com.autocomplete.datatype;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * Values, payloads and scores of a {@link PatriciaMap} are kept apart, including for numeric values which could
+ * also be taken for a score.
+ */
+public class PatriciaMapTest {
+
+    @Test
+    public void integerValues() {
+        PatriciaMap<String, Integer> map = new PatriciaMap<>(StringKeyComparator.CHAR);
+        assertNull(map.putValue("apple", 42));
+        assertEquals(Integer.valueOf(42), map.putValue("apple", 43));
+        assertEquals(Integer.valueOf(43), map.get("apple"));
+        assertEquals(Long.valueOf(0L), map.getScore("apple"));
+        assertEquals(Long.valueOf(0L), map.getPayload("apple"));
+    }
+
+    @Test
+    public void longValues() {
+        PatriciaMap<String, Long> map = new PatriciaMap<>(StringKeyComparator.CHAR);
+        map.putValue("apple", 42L);
+        map.putValue("apply", 5L, 7L);
+        assertEquals(Long.valueOf(42L), map.get("apple"));
+        assertEquals(Long.valueOf(0L), map.getScore("apple"));
+        assertEquals(Long.valueOf(7L), map.get("apply"));
+        assertEquals(Long.valueOf(5L), map.getScore("apply"));
+        assertEquals(Arrays.asList("apply", "apple"), map.getTopSuggestions("app", 2));
+    }
+
+    @Test
+    public void payloadsAreNotScores() {
+        PatriciaMap<String, String> map = new PatriciaMap<>(StringKeyComparator.CHAR);
+        map.put("apple", 3L);
+        map.putPayload("apple", 100L);
+        map.putPayload("apply", 200L);
+        assertEquals(Long.valueOf(3L), map.getScore("apple"));
+        assertEquals(Long.valueOf(0L), map.getScore("apply"));
+        assertEquals(Arrays.asList("apple", "apply"), map.getTopSuggestions("app", 2));
+
+        assertEquals(1L, map.mergePayload("apricot", 1L, Long::sum));
+        assertEquals(2L, map.mergePayload("apricot", 1L, Long::sum));
+        assertEquals(Long.valueOf(0L), map.getScore("apricot"));
+        assertNull(map.getPayload("banana"));
+
+        map.putValue("apple", "Apple");
+        List<PatriciaMap.Entry<String, String>> entries = map.getSuggestionEntries("ap", 3);
+        assertEquals(3, entries.size());
+        assertEquals("apple", entries.get(0).getKey());
+        assertEquals("Apple", entries.get(0).getValue());
+        assertEquals(3L, entries.get(0).getScore());
+        assertEquals(100L, entries.get(0).getPayload());
+        assertEquals(200L, entries.get(1).getPayload());
+        assertEquals(2L, entries.get(2).getPayload());
+    }
+
+    @Test
+    public void payloadsMoveWithTheirKeys() {
+        PatriciaMap<String, String> map = new PatriciaMap<>(StringKeyComparator.CHAR);
+        String[] keys = { "a", "ab", "abc", "b", "ba", "bab", "c" };
+        for (int i = 0; i < keys.length; i++) {
+            map.putPayload(keys[i], i);
+        }
+        map.remove("ab");
+        map.removePrefix("ba");
+        assertNull(map.getPayload("ab"));
+        assertNull(map.getPayload("bab"));
+        for (String key : Arrays.asList("a", "abc", "b", "c")) {
+            assertEquals(Long.valueOf(Arrays.asList(keys).indexOf(key)), map.getPayload(key), key);
+        }
+
+        map.putPayload("ab", 9L);
+        assertEquals(Long.valueOf(9L), map.getPayload("ab"));
+    }
+
+    /**
+     * A rebuild copies every node, the root with the empty key included.
+     */
+    @Test
+    public void valuesSurviveRebuilds() {
+        PatriciaMap<String, String> map = new PatriciaMap<>(StringKeyComparator.CHAR);
+        for (String key : Arrays.asList("", "a", "ab", "b", "ba", "bb")) {
+            map.putValue(key, 1L, key.toUpperCase());
+            map.putPayload(key, key.length());
+        }
+        assertEquals(3, map.retainAll(new Predicate<String>() {
+            @Override
+            public boolean test(String key) {
+                return !key.startsWith("b");
+            }
+        }));
+        for (String key : Arrays.asList("", "a", "ab")) {
+            assertEquals(key.toUpperCase(), map.get(key), key);
+            assertEquals(Long.valueOf(key.length()), map.getPayload(key), key);
+            assertEquals(Long.valueOf(1L), map.getScore(key), key);
+        }
+
+        assertEquals(3, map.removePrefix(""));
+        map.put("");
+        assertNull(map.get(""));
+        assertEquals(Long.valueOf(0L), map.getPayload(""));
+    }
+}
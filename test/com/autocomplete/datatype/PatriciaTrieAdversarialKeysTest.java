@@ -0,0 +1,127 @@
+package com.autocomplete.datatype;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * Iteration, suggestions and removal on the adversarial key sets of the iteration benchmark, checked against a
+ * {@link TreeSet}. With {@link StringKeyComparator#CHAR} the bit order of the trie is the natural order of strings.
+ */
+public class PatriciaTrieAdversarialKeysTest {
+
+    private static final int SHARED_PREFIX_LENGTH = 1000;
+    private static final int KEYS = 3000;
+    private static final int PREFIXES = 300;
+    private static final int SUGGESTIONS = 20;
+    private static final int REMOVALS_PER_CHECK = 100;
+
+    /**
+     * Words behind a 1000-char prefix that all keys share.
+     */
+    @Test
+    public void sharedPrefix() {
+        Random random = new Random(1);
+        StringBuilder prefix = new StringBuilder();
+        while (prefix.length() < SHARED_PREFIX_LENGTH) {
+            prefix.append(word(random));
+        }
+        prefix.setLength(SHARED_PREFIX_LENGTH);
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < KEYS; i++) {
+            keys.add(prefix + word(random));
+        }
+        check(keys, random);
+    }
+
+    /**
+     * Keys of 16 to 31 chars which are all 0xFFFE or 0xFFFF, so that keys only differ in the last bit of a char.
+     */
+    @Test
+    public void lastBit() {
+        Random random = new Random(2);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < KEYS; i++) {
+            char[] key = new char[16 + random.nextInt(16)];
+            for (int j = 0; j < key.length; j++) {
+                key[j] = random.nextBoolean() ? '\uFFFF' : '\uFFFE';
+            }
+            keys.add(new String(key));
+        }
+        check(keys, random);
+    }
+
+    private static void check(List<String> keys, Random random) {
+        PatriciaTrie<String> trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        TreeSet<String> expected = new TreeSet<>();
+        for (String key : keys) {
+            trie.put(key);
+            expected.add(key);
+        }
+        assertEquals(expected.size(), trie.size());
+        checkContent(trie, expected, random);
+
+        List<String> removals = new ArrayList<>(expected);
+        Collections.shuffle(removals, random);
+        for (int i = 0; i < removals.size(); i++) {
+            String key = removals.get(i);
+            assertTrue(trie.remove(key), key);
+            assertFalse(trie.remove(key), key);
+            expected.remove(key);
+            if (i % REMOVALS_PER_CHECK == 0 || expected.size() < 3) {
+                assertEquals(expected.size(), trie.size());
+                checkContent(trie, expected, random);
+            }
+        }
+    }
+
+    private static void checkContent(PatriciaTrie<String> trie, TreeSet<String> expected, Random random) {
+        assertEquals(new ArrayList<>(expected), list(trie.suggestionIterator("")));
+        if (expected.isEmpty()) {
+            return;
+        }
+
+        List<String> keys = new ArrayList<>(expected);
+        for (int i = 0; i < PREFIXES; i++) {
+            String key = keys.get(random.nextInt(keys.size()));
+            String prefix = key.substring(0, random.nextInt(key.length() + 1));
+            List<String> matches = new ArrayList<>();
+            for (String match : expected.tailSet(prefix, true)) {
+                if (!match.startsWith(prefix) || matches.size() == SUGGESTIONS) {
+                    break;
+                }
+                matches.add(match);
+            }
+            assertEquals(matches, trie.getSuggestions(prefix, SUGGESTIONS), prefix);
+        }
+    }
+
+    private static List<String> list(Iterator<String> iterator) {
+        List<String> keys = new ArrayList<>();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+        }
+        return keys;
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 2 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(4)));
+        }
+        return word.toString();
+    }
+}
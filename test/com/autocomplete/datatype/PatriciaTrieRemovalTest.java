@@ -0,0 +1,175 @@
+package com.autocomplete.datatype;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * Random puts and removals through remove, removePrefix, removeAll and retainAll, checked against a {@link TreeMap}
+ * after every step. Keys are short strings over three chars, so that removals hit all shapes of the trie, and some of
+ * the bulk removals are large enough to rebuild the trie instead of unlinking keys one by one.
+ */
+public class PatriciaTrieRemovalTest {
+
+    private static final int ROUNDS = 300;
+    private static final int STEPS = 150;
+    private static final int PREFIXES = 8;
+
+    @Test
+    public void removalsMatchTreeMap() {
+        Random random = new Random(7);
+        for (int round = 0; round < ROUNDS; round++) {
+            PatriciaTrie<String> trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+            TreeMap<String, Long> expected = new TreeMap<>();
+            for (int step = 0; step < STEPS; step++) {
+                String key = random.nextInt(15) == 0 ? "" : key(random);
+                int operation = random.nextInt(20);
+                if (operation < 7) {
+                    long score = random.nextInt(30) - 10;
+                    trie.put(key, score);
+                    expected.put(key, score);
+                } else if (operation < 8) {
+                    trie.put(key);
+                    if (!expected.containsKey(key)) {
+                        expected.put(key, 0L);
+                    }
+                } else if (operation < 15) {
+                    assertEquals(expected.remove(key) != null, trie.remove(key), key);
+                } else if (operation < 17) {
+                    String prefix = key.substring(0, random.nextInt(key.length() + 1));
+                    assertEquals(removePrefix(expected, prefix), trie.removePrefix(prefix), prefix);
+                } else if (operation < 18) {
+                    List<String> keys = new ArrayList<>();
+                    for (int i = random.nextInt(10); i > 0; i--) {
+                        keys.add(key(random));
+                    }
+                    int removed = 0;
+                    for (String removedKey : new HashSet<>(keys)) {
+                        if (expected.remove(removedKey) != null) {
+                            removed++;
+                        }
+                    }
+                    assertEquals(removed, trie.removeAll(keys));
+                } else {
+                    Predicate<String> filter = filter((char) ('a' + random.nextInt(3)), random.nextInt(3));
+                    int removed = 0;
+                    for (Iterator<String> keys = expected.keySet().iterator(); keys.hasNext();) {
+                        if (!filter.test(keys.next())) {
+                            keys.remove();
+                            removed++;
+                        }
+                    }
+                    assertEquals(removed, trie.retainAll(filter));
+                }
+                check(trie, expected, random);
+            }
+        }
+    }
+
+    /**
+     * Removing keys which are prefixes of others, one by one and in both orders.
+     */
+    @Test
+    public void removePrefixChains() {
+        List<String> chain = Arrays.asList("", "a", "ab", "abc", "abcd", "abcde", "abd", "b");
+        for (boolean reversed : new boolean[] { false, true }) {
+            PatriciaTrie<String> trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+            TreeMap<String, Long> expected = new TreeMap<>();
+            for (int i = 0; i < chain.size(); i++) {
+                trie.put(chain.get(i), i);
+                expected.put(chain.get(i), (long) i);
+            }
+
+            List<String> removals = new ArrayList<>(chain);
+            if (reversed) {
+                Collections.reverse(removals);
+            }
+            for (String key : removals) {
+                assertEquals(true, trie.remove(key), key);
+                expected.remove(key);
+                check(trie, expected, new Random(key.length()));
+            }
+        }
+    }
+
+    private static void check(PatriciaTrie<String> trie, TreeMap<String, Long> expected, Random random) {
+        assertEquals(expected.size(), trie.size());
+        assertEquals(new ArrayList<>(expected.keySet()), trie.getSuggestions("", Integer.MAX_VALUE));
+        for (String key : expected.keySet()) {
+            assertEquals(expected.get(key), trie.getScore(key), key);
+        }
+
+        for (int i = 0; i < PREFIXES; i++) {
+            String prefix = key(random);
+            prefix = prefix.substring(0, random.nextInt(Math.min(prefix.length(), 3) + 1));
+            List<String> matches = new ArrayList<>();
+            for (String key : expected.tailMap(prefix, true).keySet()) {
+                if (!key.startsWith(prefix)) {
+                    break;
+                }
+                matches.add(key);
+            }
+            assertEquals(matches, trie.getSuggestions(prefix, Integer.MAX_VALUE), prefix);
+
+            int k = 1 + random.nextInt(5);
+            List<String> top = topSuggestions(expected, matches);
+            assertEquals(top.subList(0, Math.min(k, top.size())), trie.getTopSuggestions(prefix, k), prefix);
+        }
+    }
+
+    /**
+     * Returns the keys by descending score, keys with the same score in key order.
+     */
+    static List<String> topSuggestions(final TreeMap<String, Long> scores, List<String> keys) {
+        List<String> top = new ArrayList<>(keys);
+        Collections.sort(top, new Comparator<String>() {
+            @Override
+            public int compare(String key, String other) {
+                int order = scores.get(other).compareTo(scores.get(key));
+                return order != 0 ? order : key.compareTo(other);
+            }
+        });
+        return top;
+    }
+
+    private static int removePrefix(TreeMap<String, Long> expected, String prefix) {
+        int removed = 0;
+        for (Iterator<String> keys = expected.keySet().iterator(); keys.hasNext();) {
+            if (keys.next().startsWith(prefix)) {
+                keys.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static Predicate<String> filter(final char removedChar, final int keptLength) {
+        return new Predicate<String>() {
+            @Override
+            public boolean test(String key) {
+                return key.indexOf(removedChar) < 0 || key.length() % 3 == keptLength;
+            }
+        };
+    }
+
+    private static String key(Random random) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 1 + random.nextInt(5); i > 0; i--) {
+            key.append((char) ('a' + random.nextInt(3)));
+        }
+        return key.toString();
+    }
+}
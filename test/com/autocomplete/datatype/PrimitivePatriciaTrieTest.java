@@ -0,0 +1,213 @@
+package com.autocomplete.datatype;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * {@link LongPatriciaTrie} and {@link IntPatriciaTrie} against a {@link TreeSet} ordered as unsigned numbers. Key sets
+ * are random, small, only differ in their top and bottom bits, or cluster around the sign bit.
+ */
+public class PrimitivePatriciaTrieTest {
+
+    private static final int ROUNDS = 400;
+    private static final int STEPS = 600;
+    private static final int CHECK_INTERVAL = 20;
+    private static final int PREFIXES = 10;
+
+    private static final Comparator<Long> UNSIGNED_LONG = new Comparator<Long>() {
+        @Override
+        public int compare(Long key, Long other) {
+            return Long.compareUnsigned(key, other);
+        }
+    };
+
+    private static final Comparator<Integer> UNSIGNED_INT = new Comparator<Integer>() {
+        @Override
+        public int compare(Integer key, Integer other) {
+            return Integer.compareUnsigned(key, other);
+        }
+    };
+
+    @Test
+    public void longKeysMatchTreeSet() {
+        Random random = new Random(7);
+        for (int round = 0; round < ROUNDS; round++) {
+            LongPatriciaTrie trie = new LongPatriciaTrie();
+            TreeSet<Long> expected = new TreeSet<>(UNSIGNED_LONG);
+            LongPatriciaTrie.Cursor cursor = trie.cursor();
+            int shape = random.nextInt(4);
+            for (int step = 0; step < STEPS; step++) {
+                long key = key(random, shape);
+                int operation = random.nextInt(10);
+                if (operation < 5) {
+                    assertEquals(expected.add(key), trie.add(key));
+                } else if (operation < 8) {
+                    assertEquals(expected.remove(key), trie.remove(key));
+                } else {
+                    assertEquals(expected.contains(key), trie.contains(key));
+                }
+                assertEquals(expected.size(), trie.size());
+
+                if (step % CHECK_INTERVAL == 0) {
+                    assertEquals(new ArrayList<>(expected), longs(trie, 0L, 0));
+                    for (int i = 0; i < PREFIXES; i++) {
+                        int bits = random.nextInt(Long.SIZE + 1);
+                        long prefix = expected.isEmpty() || random.nextBoolean() ? random.nextLong()
+                                : new ArrayList<>(expected).get(random.nextInt(expected.size()));
+                        List<Long> matches = new ArrayList<>();
+                        for (long match : expected) {
+                            if (bits == 0 || ((match ^ prefix) >>> (Long.SIZE - bits)) == 0) {
+                                matches.add(match);
+                            }
+                        }
+                        assertEquals(matches, longs(trie, prefix, bits));
+                        assertEquals(matches.size(), trie.countPrefix(prefix, bits));
+                        assertEquals(!matches.isEmpty(), trie.containsPrefix(prefix, bits));
+
+                        List<Long> seen = new ArrayList<>();
+                        cursor.seek(prefix, bits);
+                        while (cursor.hasNext()) {
+                            seen.add(cursor.nextLong());
+                        }
+                        assertEquals(matches, seen);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void intKeysMatchTreeSet() {
+        Random random = new Random(8);
+        for (int round = 0; round < ROUNDS; round++) {
+            IntPatriciaTrie trie = new IntPatriciaTrie();
+            TreeSet<Integer> expected = new TreeSet<>(UNSIGNED_INT);
+            IntPatriciaTrie.Cursor cursor = trie.cursor();
+            int shape = random.nextInt(4);
+            for (int step = 0; step < STEPS; step++) {
+                long wide = key(random, shape);
+                int key = (int) (wide ^ (wide >>> Integer.SIZE));
+                int operation = random.nextInt(10);
+                if (operation < 5) {
+                    assertEquals(expected.add(key), trie.add(key));
+                } else if (operation < 8) {
+                    assertEquals(expected.remove(key), trie.remove(key));
+                } else {
+                    assertEquals(expected.contains(key), trie.contains(key));
+                }
+                assertEquals(expected.size(), trie.size());
+
+                if (step % CHECK_INTERVAL == 0) {
+                    assertEquals(new ArrayList<>(expected), ints(trie, 0, 0));
+                    for (int i = 0; i < PREFIXES; i++) {
+                        int bits = random.nextInt(Integer.SIZE + 1);
+                        int prefix = expected.isEmpty() || random.nextBoolean() ? random.nextInt()
+                                : new ArrayList<>(expected).get(random.nextInt(expected.size()));
+                        List<Integer> matches = new ArrayList<>();
+                        for (int match : expected) {
+                            if (bits == 0 || ((match ^ prefix) >>> (Integer.SIZE - bits)) == 0) {
+                                matches.add(match);
+                            }
+                        }
+                        assertEquals(matches, ints(trie, prefix, bits));
+                        assertEquals(matches.size(), trie.countPrefix(prefix, bits));
+                        assertEquals(!matches.isEmpty(), trie.containsPrefix(prefix, bits));
+
+                        List<Integer> seen = new ArrayList<>();
+                        cursor.seek(prefix, bits);
+                        while (cursor.hasNext()) {
+                            seen.add(cursor.nextInt());
+                        }
+                        assertEquals(matches, seen);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void clearEmptiesTheTrie() {
+        LongPatriciaTrie trie = new LongPatriciaTrie();
+        for (long key = 0; key < 100; key++) {
+            trie.add(key * 0x0101010101010101L);
+        }
+        trie.clear();
+        assertEquals(0, trie.size());
+        assertEquals(new ArrayList<Long>(), longs(trie, 0L, 0));
+        assertEquals(true, trie.add(42L));
+        assertEquals(1, trie.countPrefix(0L, 0));
+    }
+
+    @Test
+    public void invalidPrefixLengthsAndExhaustedCursors() {
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                new LongPatriciaTrie().containsPrefix(0L, Long.SIZE + 1);
+            }
+        });
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                new IntPatriciaTrie().containsPrefix(0, Integer.SIZE + 1);
+            }
+        });
+        assertThrows(NoSuchElementException.class, new Executable() {
+            @Override
+            public void execute() {
+                new IntPatriciaTrie().cursor().nextInt();
+            }
+        });
+    }
+
+    /**
+     * Returns a key of the given shape: random, small, differing only in the top and bottom byte, or next to the
+     * sign bit.
+     */
+    private static long key(Random random, int shape) {
+        switch (shape) {
+        case 0:
+            return random.nextLong();
+        case 1:
+            return random.nextInt(64);
+        case 2:
+            return random.nextLong() & 0xFF000000000000FFL;
+        default:
+            return random.nextBoolean() ? Long.MIN_VALUE + random.nextInt(16) : -1L - random.nextInt(16);
+        }
+    }
+
+    private static List<Long> longs(LongPatriciaTrie trie, long prefix, int bits) {
+        final List<Long> keys = new ArrayList<>();
+        trie.forEachWithPrefix(prefix, bits, new LongConsumer() {
+            @Override
+            public void accept(long key) {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+
+    private static List<Integer> ints(IntPatriciaTrie trie, int prefix, int bits) {
+        final List<Integer> keys = new ArrayList<>();
+        trie.forEachWithPrefix(prefix, bits, new IntConsumer() {
+            @Override
+            public void accept(int key) {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+}
@@ -0,0 +1,115 @@
+package com.autocomplete.datatype;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import com.autocomplete.comparators.StringKeyComparator;
+
+/**
+ * A {@link ShardedPatriciaTrie}, bulk loaded or split at random keys, against a {@link TreeMap}. Scores repeat, so
+ * that top suggestions with the same score have to come out in key order across shards.
+ */
+public class ShardedPatriciaTrieTest {
+
+    private static final int ROUNDS = 60;
+    private static final int KEYS = 3000;
+    private static final int STEPS = 300;
+
+    @Test
+    public void shardsMatchTreeMap() {
+        Random random = new Random(3);
+        for (int round = 0; round < ROUNDS; round++) {
+            List<String> keys = new ArrayList<>();
+            for (int i = random.nextInt(KEYS); i > 0; i--) {
+                keys.add(key(random));
+            }
+
+            int shardCount = 1 + random.nextInt(9);
+            ShardedPatriciaTrie<String> trie;
+            if (round % 2 == 0) {
+                trie = ShardedPatriciaTrie.bulkLoad(StringKeyComparator.CHAR, keys.iterator(), shardCount);
+            } else {
+                TreeSet<String> splitPoints = new TreeSet<>();
+                for (int i = 0; i < shardCount; i++) {
+                    splitPoints.add(key(random));
+                }
+                trie = new ShardedPatriciaTrie<>(StringKeyComparator.CHAR, new ArrayList<>(splitPoints));
+                for (String key : keys) {
+                    trie.put(key);
+                }
+            }
+            TreeMap<String, Long> expected = new TreeMap<>();
+            for (String key : keys) {
+                expected.put(key, 0L);
+            }
+            assertEquals(expected.size(), trie.size());
+
+            for (String key : new ArrayList<>(expected.keySet())) {
+                long score = random.nextInt(100);
+                trie.put(key, score);
+                expected.put(key, score);
+            }
+
+            for (int step = 0; step < STEPS; step++) {
+                String key = key(random);
+                int operation = random.nextInt(5);
+                if (operation == 0) {
+                    long score = random.nextInt(100);
+                    trie.put(key, score);
+                    expected.put(key, score);
+                } else if (operation == 1) {
+                    assertEquals(expected.remove(key) != null, trie.remove(key), key);
+                } else {
+                    String prefix = key.substring(0, random.nextInt(key.length() + 1));
+                    int limit = random.nextInt(40);
+                    List<String> matches = new ArrayList<>();
+                    for (String match : expected.tailMap(prefix, true).keySet()) {
+                        if (!match.startsWith(prefix)) {
+                            break;
+                        }
+                        matches.add(match);
+                    }
+                    assertEquals(matches.subList(0, Math.min(limit, matches.size())),
+                            trie.getSuggestions(prefix, limit), prefix);
+                    List<String> top = PatriciaTrieRemovalTest.topSuggestions(expected, matches);
+                    assertEquals(top.subList(0, Math.min(limit, top.size())), trie.getTopSuggestions(prefix, limit),
+                            prefix);
+                    assertEquals(expected.get(key), trie.getScore(key), key);
+                }
+                assertEquals(expected.size(), trie.size());
+            }
+            checkShardRanges(trie);
+        }
+    }
+
+    /**
+     * Every key of a shard has to sort before every key of the next shard.
+     */
+    private static void checkShardRanges(ShardedPatriciaTrie<String> trie) {
+        String last = null;
+        for (int i = 0; i < trie.shardCount(); i++) {
+            for (Iterator<String> keys = trie.shard(i).suggestionIterator(""); keys.hasNext();) {
+                String key = keys.next();
+                assertTrue(last == null || last.compareTo(key) < 0, key);
+                last = key;
+            }
+        }
+    }
+
+    private static String key(Random random) {
+        StringBuilder key = new StringBuilder();
+        for (int i = random.nextInt(6); i > 0; i--) {
+            key.append((char) ('a' + random.nextInt(3)));
+        }
+        return key.toString();
+    }
+}
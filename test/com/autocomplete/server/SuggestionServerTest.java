@@ -0,0 +1,90 @@
+package com.autocomplete.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.autocomplete.comparators.StringKeyComparator;
+import com.autocomplete.datatype.PatriciaTrie;
+
+/**
+ * Requests against a server with one worker and a queue of one, so that the third request in flight is rejected.
+ */
+public class SuggestionServerTest {
+
+    private static final int TIMEOUT_MILLIS = 5000;
+    private static final int DISPATCH_MILLIS = 200;
+    private static final String REQUEST_LINE = "GET /suggest?q=ca HTTP/1.1\r\nHost: localhost\r\n";
+
+    /**
+     * Clients which send only part of their request hold the worker, the queue and a rejection thread. A complete
+     * request still gets its 503 instead of waiting behind them.
+     */
+    @Test
+    public void slowRejectedRequestDoesNotStallOthers() throws IOException, InterruptedException {
+        PatriciaTrie<String> trie = new PatriciaTrie<>(StringKeyComparator.CHAR);
+        trie.put("car");
+        trie.put("cat");
+        SuggestionServer server = new SuggestionServer(trie.freeze(), new InetSocketAddress("127.0.0.1", 0), 1, 1);
+        server.start();
+        List<Socket> slow = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                Socket socket = connect(server);
+                send(socket, REQUEST_LINE);
+                slow.add(socket);
+                Thread.sleep(DISPATCH_MILLIS);
+            }
+
+            try (Socket socket = connect(server)) {
+                send(socket, REQUEST_LINE + "Connection: close\r\n\r\n");
+                String response = read(socket);
+                assertTrue(response.startsWith("HTTP/1.1 503"), response);
+                assertTrue(response.toLowerCase().contains("retry-after: 1"), response);
+            }
+
+            // The first client finishes its request and gets its suggestions.
+            send(slow.get(0), "Connection: close\r\n\r\n");
+            String response = read(slow.get(0));
+            assertTrue(response.startsWith("HTTP/1.1 200"), response);
+            assertTrue(response.endsWith("car\ncat\n"), response);
+            assertEquals(1, server.requestCount());
+            assertEquals(1, server.rejectedCount());
+        } finally {
+            for (Socket socket : slow) {
+                socket.close();
+            }
+            server.stop(0);
+        }
+    }
+
+    private static Socket connect(SuggestionServer server) throws IOException {
+        Socket socket = new Socket(server.getAddress().getAddress(), server.getAddress().getPort());
+        socket.setSoTimeout(TIMEOUT_MILLIS);
+        return socket;
+    }
+
+    private static void send(Socket socket, String text) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    /**
+     * Reads the response until the server closes the connection.
+     */
+    private static String read(Socket socket) throws IOException {
+        InputStream in = socket.getInputStream();
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+}